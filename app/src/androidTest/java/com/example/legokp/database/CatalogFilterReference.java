@@ -0,0 +1,70 @@
+package com.example.legokp.database;
+
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.viewmodels.LegoViewModel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Эталонная фильтрация и сортировка каталога в Java — логика бывшего CatalogFilterEngine
+ * (а до него LegoViewModel.applyFilters). Сейчас фильтрация выполняется в SQLite
+ * (CatalogQueryBuilder), а этот класс нужен только тестам паритета.
+ */
+final class CatalogFilterReference {
+
+    private CatalogFilterReference() {
+    }
+
+    /**
+     * @param entities все строки каталога в порядке прежнего getAllSets (name ASC, затем set_num)
+     */
+    static List<LegoSetEntity> apply(List<LegoSetEntity> entities, LegoViewModel.FilterOptions options) {
+        String query = isEmpty(options.query) ? null : options.query.toLowerCase();
+        String theme = isEmpty(options.theme) ? null : options.theme.toLowerCase();
+
+        List<LegoSetEntity> filteredList = new ArrayList<>();
+        for (LegoSetEntity set : entities) {
+            // 1. Поиск по названию
+            if (query != null && (set.getName() == null || !set.getName().toLowerCase().contains(query))) continue;
+            // 2. Фильтр по теме
+            if (theme != null && (set.getTheme() == null || !set.getTheme().toLowerCase().contains(theme))) continue;
+            // 3. Фильтр по году
+            if (set.getYear() < options.minYear || set.getYear() > options.maxYear) continue;
+            // 4. Фильтр по количеству деталей
+            if (set.getNumParts() < options.minParts || set.getNumParts() > options.maxParts) continue;
+
+            filteredList.add(set);
+        }
+
+        // 5. Сортировка (List.sort стабильна, при равенстве ключа сохраняется исходный порядок)
+        sortSets(filteredList, options.sortBy);
+        return filteredList;
+    }
+
+    /**
+     * Исходный порядок прежнего getAllSets: name ASC (BINARY), set_num — для детерминированности
+     */
+    static void sortAsSource(List<LegoSetEntity> entities) {
+        entities.sort(Comparator.comparing(LegoSetEntity::getName).thenComparing(LegoSetEntity::getSetNum));
+    }
+
+    private static void sortSets(List<LegoSetEntity> sets, String sortBy) {
+        switch (sortBy) {
+            case "name_desc": sets.sort((a, b) -> b.getName().compareToIgnoreCase(a.getName())); break;
+            case "price_asc": sets.sort(Comparator.comparingDouble(LegoSetEntity::getPrice)); break;
+            case "price_desc": sets.sort((a, b) -> Double.compare(b.getPrice(), a.getPrice())); break;
+            case "rating_desc": sets.sort((a, b) -> Double.compare(b.getRating(), a.getRating())); break;
+            case "year_desc": sets.sort((a, b) -> Integer.compare(b.getYear(), a.getYear())); break;
+            case "year_asc": sets.sort(Comparator.comparingInt(LegoSetEntity::getYear)); break;
+            case "parts_desc": sets.sort((a, b) -> Integer.compare(b.getNumParts(), a.getNumParts())); break;
+            case "parts_asc": sets.sort(Comparator.comparingInt(LegoSetEntity::getNumParts)); break;
+            default: sets.sort(Comparator.comparing(LegoSetEntity::getName, String.CASE_INSENSITIVE_ORDER)); break;
+        }
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.legokp.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.viewmodels.LegoViewModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Паритет CatalogQueryBuilder с прежней фильтрацией в Java (CatalogFilterReference):
+ * одинаковые строки в одинаковом порядке для всех ключей сортировки, включая кириллицу и смешанный регистр.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogQueryParityTest {
+
+    private static final String[] SORT_KEYS = {
+            "name_asc", "name_desc", "price_asc", "price_desc", "rating_desc",
+            "year_desc", "year_asc", "parts_desc", "parts_asc"
+    };
+
+    private AppDatabase db;
+    private List<LegoSetEntity> source;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+
+        source = new ArrayList<>(Arrays.asList(
+                set("10001", "Star Wars X-Wing", 2019, "Star Wars", 731, 99.99, 4.5),
+                set("10002", "star wars Tie Fighter", 2019, "STAR WARS", 432, 49.99, 4.5),
+                set("10003", "Звёздный Разрушитель", 2021, "Звёздные Войны", 4784, 699.99, 4.9),
+                set("10004", "звёздный крейсер", 2021, "звёздные войны", 2000, 199.99, 4.2),
+                set("10005", "Дом на дереве", 2018, "Город", 1200, 99.99, 4.2),
+                set("10006", "Ёлка", 2020, "Праздник", 300, 19.99, 3.8),
+                set("10007", "елка", 2020, "праздник", 300, 19.99, 3.8),
+                set("10008", "ZEBRA Zoo", 1999, "City", 150, 9.99, 3.0),
+                set("10009", "apple Stand", 1985, "city", 75, 4.99, 3.0),
+                set("10010", "Apple stand", 1985, "City", 75, 4.99, 3.0),
+                set("10011", "Éclair Café", 2022, "Creator", 1800, 129.99, 4.7),
+                set("10012", "eclair cafe", 2022, "creator", 1800, 129.99, 4.7),
+                set("10013", "Дом на дереве", 2018, "Город", 1200, 99.99, 4.2)
+        ));
+        db.legoSetDao().insertAll(source);
+        CatalogFilterReference.sortAsSource(source);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void allSortKeysWithoutFiltersMatchReference() {
+        for (String sortBy : SORT_KEYS) {
+            assertParity(options(null, null, sortBy));
+        }
+    }
+
+    @Test
+    public void cyrillicAndMixedCaseQueriesMatchReference() {
+        String[] queries = {"ЗВЁЗД", "звёздный", "ДОМ", "ёл", "Елка", "STAR", "wars", "ars", "wing",
+                "éclair", "CAFÉ", "apple s", "stand apple", "%", "_", "-"};
+        for (String query : queries) {
+            for (String sortBy : SORT_KEYS) {
+                assertParity(options(query, null, sortBy));
+            }
+        }
+    }
+
+    @Test
+    public void themeAndRangesMatchReference() {
+        String[] themes = {"ЗВЁЗДНЫЕ", "star wars", "CITY", "праздн"};
+        for (String theme : themes) {
+            for (String sortBy : SORT_KEYS) {
+                LegoViewModel.FilterOptions options = options(null, theme, sortBy);
+                assertParity(options);
+
+                options.minYear = 2000;
+                options.maxYear = 2020;
+                options.minParts = 300;
+                options.maxParts = 1200;
+                assertParity(options);
+            }
+        }
+    }
+
+    private void assertParity(LegoViewModel.FilterOptions options) {
+        List<String> expected = new ArrayList<>();
+        for (LegoSetEntity entity : CatalogFilterReference.apply(source, options)) {
+            expected.add(entity.getSetNum());
+        }
+
+        CatalogQueryBuilder builder = new CatalogQueryBuilder()
+                .query(options.query)
+                .theme(options.theme)
+                .yearRange(options.minYear, options.maxYear)
+                .partsRange(options.minParts, options.maxParts)
+                .sortBy(options.sortBy);
+        List<String> actual = new ArrayList<>();
+        try (Cursor cursor = db.query(builder.build())) {
+            int column = cursor.getColumnIndexOrThrow("set_num");
+            while (cursor.moveToNext()) {
+                actual.add(cursor.getString(column));
+            }
+        }
+
+        String message = "query=" + options.query + " theme=" + options.theme + " sortBy=" + options.sortBy;
+        assertEquals(message, expected, actual);
+
+        try (Cursor cursor = db.query(builder.buildCount())) {
+            cursor.moveToFirst();
+            assertEquals(message, expected.size(), cursor.getInt(0));
+        }
+    }
+
+    private static LegoViewModel.FilterOptions options(String query, String theme, String sortBy) {
+        LegoViewModel.FilterOptions options = new LegoViewModel.FilterOptions();
+        options.query = query != null ? query : "";
+        options.theme = theme;
+        options.sortBy = sortBy;
+        options.minYear = 1900;
+        options.maxYear = 2100;
+        options.minParts = 0;
+        options.maxParts = 100000;
+        return options;
+    }
+
+    private static LegoSetEntity set(String setNum, String name, int year, String theme,
+                                     int numParts, double price, double rating) {
+        return new LegoSetEntity(setNum, name, year, theme, numParts, null, price, rating,
+                "8+", false, true, false, null);
+    }
+}
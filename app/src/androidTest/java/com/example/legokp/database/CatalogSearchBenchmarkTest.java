@@ -0,0 +1,119 @@
+package com.example.legokp.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.legokp.database.entity.LegoSetEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Поиск по названию на каталоге из 50 000 строк: MATCH по lego_sets_fts против прежнего LIKE '%...%'.
+ * Время пишется в logcat (тег CatalogSearchBenchmark).
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogSearchBenchmarkTest {
+
+    private static final String TAG = "CatalogSearchBenchmark";
+    private static final int ROWS = 50_000;
+    private static final int ITERATIONS = 20;
+    private static final String[] WORDS = {
+            "star", "wars", "castle", "dragon", "city", "police", "fire", "station", "ninja", "temple",
+            "harbor", "train", "space", "shuttle", "pirate", "ship", "town", "hall", "racer", "truck",
+            "замок", "дракон", "город", "корабль", "станция"
+    };
+    private static final String[] QUERIES = {"star", "dra", "корабль", "space shuttle", "zzz"};
+
+    private static final String FTS_SQL = "SELECT set_num FROM lego_sets WHERE lego_sets.rowid IN "
+            + "(SELECT rowid FROM lego_sets_fts WHERE lego_sets_fts MATCH ?) ORDER BY name_fold";
+    private static final String LIKE_SQL = "SELECT set_num FROM lego_sets "
+            + "WHERE name LIKE '%' || ? || '%' ORDER BY name_fold";
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+
+        Random random = new Random(42);
+        List<LegoSetEntity> batch = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + (i % 997);
+            batch.add(new LegoSetEntity(String.valueOf(100000 + i), name, 1980 + random.nextInt(45),
+                    WORDS[random.nextInt(WORDS.length)], random.nextInt(5000), null, 9.99, 4.0,
+                    "8+", false, true, false, null));
+            if (batch.size() == 1000) {
+                db.legoSetDao().insertAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void ftsMatchVersusLikeScan() {
+        for (String query : QUERIES) {
+            String match = FtsQuery.prefixInColumn(query, "name");
+
+            Set<String> ftsHits = run(FTS_SQL, match);
+            Set<String> likeHits = new HashSet<>();
+            for (String word : query.split(" ")) {
+                Set<String> hits = run(LIKE_SQL, word);
+                if (likeHits.isEmpty()) likeHits.addAll(hits); else likeHits.retainAll(hits);
+            }
+            // Префикс слова — частный случай подстроки
+            assertTrue(query, likeHits.containsAll(ftsHits));
+
+            long ftsNanos = time(FTS_SQL, match);
+            long likeNanos = time(LIKE_SQL, query.split(" ")[0]);
+            Log.i(TAG, String.format("\"%s\": %d hits, FTS %.2f ms, LIKE %.2f ms",
+                    query, ftsHits.size(), ftsNanos / 1e6, likeNanos / 1e6));
+        }
+    }
+
+    // Среднее время запроса с чтением всех строк курсора
+    private long time(String sql, String arg) {
+        run(sql, arg); // прогрев
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            run(sql, arg);
+        }
+        return (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+    }
+
+    private Set<String> run(String sql, String arg) {
+        Set<String> setNums = new HashSet<>();
+        try (Cursor cursor = db.query(new SimpleSQLiteQuery(sql, new Object[]{arg}))) {
+            while (cursor.moveToNext()) {
+                setNums.add(cursor.getString(0));
+            }
+        }
+        return setNums;
+    }
+}
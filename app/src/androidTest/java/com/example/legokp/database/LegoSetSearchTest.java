@@ -0,0 +1,150 @@
+package com.example.legokp.database;
+
+import android.app.Application;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.legokp.database.dao.LegoSetDao;
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.repository.LegoRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Поиск через lego_sets_fts: префиксный (LegoSetDao.searchSetsFts, LegoRepository.searchSets)
+ * и ранжированный по релевантности (searchSetsRanked) на БД в памяти.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LegoSetSearchTest {
+
+    private Application application;
+    private AppDatabase db;
+    private LegoSetDao dao;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(application, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        dao = db.legoSetDao();
+        // "dragon" один раз в названии, один раз в теме и один раз в описании
+        dao.insertAll(Arrays.asList(
+                set("20001", "Dragon Temple", "Ninjago", "Temple with guards"),
+                set("20002", "Ninja Fortress", "Dragon Riders", "A fortress on the hill"),
+                set("20003", "Castle Gate", "Castle", "The dragon sleeps at the gate"),
+                set("20004", "Police Station", "City", "Police station with a jail"),
+                set("20005", "Звёздный Дракон", "Космос", null)));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void prefixSearchMatchesAnyColumnInNameOrder() throws InterruptedException {
+        assertEquals(Arrays.asList("20003", "20001", "20002"),
+                setNums(await(dao.searchSetsFts(FtsQuery.prefix("drag")))));
+        assertEquals(Collections.singletonList("20005"),
+                setNums(await(dao.searchSetsFts(FtsQuery.prefix("ДРАК")))));
+        assertEquals(Collections.singletonList("20004"),
+                setNums(await(dao.searchSetsFts(FtsQuery.prefix("police jai")))));
+        assertTrue(await(dao.searchSetsFts(FtsQuery.prefix("zzz"))).isEmpty());
+    }
+
+    @Test
+    public void rankedSearchOrdersByRelevance() {
+        // Название весит больше темы, тема — больше описания
+        assertEquals(Arrays.asList("20001", "20002", "20003"),
+                setNums(dao.searchSetsRanked(FtsQuery.prefix("dragon"), 10)));
+        assertEquals(Arrays.asList("20001", "20002"),
+                setNums(dao.searchSetsRanked(FtsQuery.prefix("dragon"), 2)));
+        assertTrue(dao.searchSetsRanked(FtsQuery.prefix("zzz"), 10).isEmpty());
+    }
+
+    @Test
+    public void rankedSearchPrefersRareMatches() {
+        // "harbor" в названии трех наборов и в теме одного: совпадение в теме реже и весит больше
+        dao.insertAll(Arrays.asList(
+                set("30001", "Harbor Crane", "City", null),
+                set("30002", "Harbor Tug", "City", null),
+                set("30003", "Harbor Lighthouse", "City", null),
+                set("30004", "Cargo Ship", "Harbor", null)));
+
+        assertEquals(Arrays.asList("30004", "30001", "30003", "30002"),
+                setNums(dao.searchSetsRanked(FtsQuery.prefix("harbor"), 10)));
+    }
+
+    @Test
+    public void indexFollowsUpdatesAndDeletes() throws InterruptedException {
+        LegoSetEntity police = dao.getSetByNum("20004");
+        police.setName("Police Dragon");
+        dao.update(police);
+        dao.delete(dao.getSetByNum("20003"));
+
+        assertEquals(Arrays.asList("20001", "20002", "20004"),
+                setNums(await(dao.searchSetsFts(FtsQuery.prefix("dragon")))));
+        // Два совпадения в названии (4 / 2) и одно в теме (2 / 1): релевантность равна, порядок по алфавиту
+        assertEquals(Arrays.asList("20001", "20002", "20004"),
+                setNums(dao.searchSetsRanked(FtsQuery.prefix("dragon"), 10)));
+    }
+
+    @Test
+    public void repositorySearchGoesThroughIndex() throws InterruptedException {
+        LegoRepository repository = new LegoRepository(application, db);
+
+        assertEquals(Arrays.asList("20003", "20001", "20002"), setNums(await(repository.searchSets("Drag"))));
+        assertEquals(Arrays.asList("20001", "20002"), setNums(await(repository.searchSetsRanked("dragon", 2))));
+        assertTrue(await(repository.searchSets(" - ")).isEmpty());
+        assertTrue(await(repository.searchSetsRanked("", 10)).isEmpty());
+    }
+
+    private static <T> T await(LiveData<T> liveData) throws InterruptedException {
+        AtomicReference<T> value = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        Observer<T> observer = v -> {
+            value.set(v);
+            latch.countDown();
+        };
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> liveData.observeForever(observer));
+        try {
+            assertTrue("no value in 5 s", latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> liveData.removeObserver(observer));
+        }
+        return value.get();
+    }
+
+    private static List<String> setNums(List<LegoSetEntity> entities) {
+        List<String> setNums = new ArrayList<>();
+        for (LegoSetEntity entity : entities) {
+            setNums.add(entity.getSetNum());
+        }
+        return setNums;
+    }
+
+    private static LegoSetEntity set(String setNum, String name, String theme, String description) {
+        return new LegoSetEntity(setNum, name, 2020, theme, 500, null, 49.99, 4.0,
+                "8+", false, true, false, description);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.legokp.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.legokp.database.dao.ReviewDao;
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.database.entity.ReviewAggregateEntity;
+import com.example.legokp.database.entity.ReviewEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * review_aggregates после вставки, изменения, удаления и каскадного удаления совпадает
+ * с пересчетом COUNT/SUM/AVG и гистограммы по самой таблице reviews.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReviewAggregateTriggersTest {
+
+    private static final double EPSILON = 1e-6;
+
+    private AppDatabase db;
+    private ReviewDao reviewDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .addCallback(new RoomDatabase.Callback() {
+                    @Override
+                    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                        ReviewAggregateTriggers.create(db);
+                    }
+                })
+                .build();
+        reviewDao = db.reviewDao();
+        db.legoSetDao().insertAll(Arrays.asList(set("10001"), set("10002")));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void insertCountsSumAverageAndHistogram() {
+        long id1 = reviewDao.insert(review("10001", 5f));
+        reviewDao.insert(review("10001", 4f));
+        reviewDao.insert(review("10001", 1f));
+
+        ReviewAggregateEntity aggregate = reviewDao.getAggregateSync("10001");
+        assertEquals(3, aggregate.getReviewCount());
+        assertEquals(10.0, aggregate.getRatingSum(), EPSILON);
+        assertEquals(10.0 / 3, aggregate.getAverageRating(), EPSILON);
+        assertEquals(1, aggregate.getStar1());
+        assertEquals(0, aggregate.getStar2());
+        assertEquals(1, aggregate.getStar4());
+        assertEquals(1, aggregate.getStar5());
+        assertMatchesRecount("10001");
+
+        ReviewEntity first = reviewDao.getReviewById(id1);
+        first.setRating(2f);
+        reviewDao.update(first);
+        aggregate = reviewDao.getAggregateSync("10001");
+        assertEquals(0, aggregate.getStar5());
+        assertEquals(1, aggregate.getStar2());
+        assertMatchesRecount("10001");
+    }
+
+    @Test
+    public void moveBetweenSetsUpdatesBothAggregates() {
+        long id = reviewDao.insert(review("10001", 3f));
+        reviewDao.insert(review("10002", 5f));
+
+        ReviewEntity moved = reviewDao.getReviewById(id);
+        moved.setSetNum("10002");
+        reviewDao.update(moved);
+
+        assertEquals(0, reviewDao.getAggregateSync("10001").getReviewCount());
+        assertEquals(0.0, reviewDao.getAggregateSync("10001").getRatingSum(), EPSILON);
+        assertEquals(2, reviewDao.getAggregateSync("10002").getReviewCount());
+        assertMatchesRecount("10001");
+        assertMatchesRecount("10002");
+    }
+
+    @Test
+    public void deleteAndCascadeKeepAggregatesExact() {
+        long id = reviewDao.insert(review("10001", 4f));
+        reviewDao.insert(review("10001", 2f));
+        reviewDao.insert(review("10002", 5f));
+
+        reviewDao.deleteByIds(Arrays.asList(id));
+        assertEquals(1, reviewDao.getAggregateSync("10001").getReviewCount());
+        assertMatchesRecount("10001");
+
+        // Удаление набора удаляет его отзывы по CASCADE, триггер удаления срабатывает и для них
+        db.legoSetDao().delete(set("10001"));
+        ReviewAggregateEntity aggregate = reviewDao.getAggregateSync("10001");
+        assertEquals(0, aggregate.getReviewCount());
+        assertEquals(0.0, aggregate.getAverageRating(), EPSILON);
+        assertMatchesRecount("10002");
+    }
+
+    @Test
+    public void randomWritesMatchRecount() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            String setNum = random.nextBoolean() ? "10001" : "10002";
+            int op = random.nextInt(3);
+            if (op < 2 || i < 10) {
+                reviewDao.insert(review(setNum, 1 + random.nextInt(9) / 2f));
+            } else {
+                for (ReviewEntity existing : reviewDao.getLatestReviewsForSet(setNum, 1)) {
+                    if (random.nextBoolean()) {
+                        reviewDao.delete(existing);
+                    } else {
+                        existing.setRating(1 + random.nextInt(9) / 2f);
+                        reviewDao.update(existing);
+                    }
+                }
+            }
+        }
+        assertMatchesRecount("10001");
+        assertMatchesRecount("10002");
+    }
+
+    private void assertMatchesRecount(String setNum) {
+        ReviewAggregateEntity aggregate = reviewDao.getAggregateSync(setNum);
+        if (aggregate == null) {
+            // Строка агрегата появляется с первым отзывом
+            aggregate = new ReviewAggregateEntity(setNum);
+        }
+        try (Cursor cursor = db.query("SELECT COUNT(*), COALESCE(SUM(rating), 0), COALESCE(AVG(rating), 0), "
+                + "SUM(ROUND(rating) <= 1), SUM(ROUND(rating) = 2), SUM(ROUND(rating) = 3), "
+                + "SUM(ROUND(rating) = 4), SUM(ROUND(rating) >= 5) FROM reviews WHERE set_num = ?",
+                new Object[]{setNum})) {
+            cursor.moveToFirst();
+            assertEquals(cursor.getInt(0), aggregate.getReviewCount());
+            assertEquals(cursor.getDouble(1), aggregate.getRatingSum(), EPSILON);
+            assertEquals(cursor.getDouble(2), aggregate.getAverageRating(), EPSILON);
+            assertEquals(cursor.getInt(3), aggregate.getStar1());
+            assertEquals(cursor.getInt(4), aggregate.getStar2());
+            assertEquals(cursor.getInt(5), aggregate.getStar3());
+            assertEquals(cursor.getInt(6), aggregate.getStar4());
+            assertEquals(cursor.getInt(7), aggregate.getStar5());
+        }
+    }
+
+    private static LegoSetEntity set(String setNum) {
+        return new LegoSetEntity(setNum, "Set " + setNum, 2020, "City", 500, null, 49.99, 4.0,
+                "8+", false, true, false, null);
+    }
+
+    private static ReviewEntity review(String setNum, float rating) {
+        return new ReviewEntity(setNum, "user", "User", rating, null);
+    }
+}
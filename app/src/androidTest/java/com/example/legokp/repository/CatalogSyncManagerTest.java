@@ -0,0 +1,201 @@
+package com.example.legokp.repository;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.LegoSetDao;
+import com.example.legokp.models.LegoSet;
+import com.example.legokp.models.LegoSetResponse;
+import com.example.legokp.network.LegoApiService;
+import com.example.legokp.utils.Constants;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Полная синхронизация каталога против MockWebServer с несколькими тысячами наборов:
+ * пропускная способность и продолжение после прерванной синхронизации.
+ * Использует БД и настройки приложения, поэтому перед и после теста они очищаются.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogSyncManagerTest {
+
+    private static final String TAG = "CatalogSyncManagerTest";
+    private static final int TOTAL_SETS = 5_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int PAGES = TOTAL_SETS / PAGE_SIZE;
+    private static final int PARALLEL_PAGES = 4;
+    private static final long TIMEOUT_MS = 60_000;
+
+    private final Gson gson = new Gson();
+    private final Map<Integer, AtomicInteger> requestsPerPage = new ConcurrentHashMap<>();
+    private final Set<Integer> failingPages = ConcurrentHashMap.newKeySet();
+
+    private Application application;
+    private LegoSetDao legoSetDao;
+    private MockWebServer server;
+    private LegoApiService api;
+
+    @Before
+    public void setUp() throws Exception {
+        application = ApplicationProvider.getApplicationContext();
+        legoSetDao = AppDatabase.getDatabase(application).legoSetDao();
+        clearState();
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int page = Integer.parseInt(request.getRequestUrl().queryParameter("page"));
+                requestsPerPage.computeIfAbsent(page, p -> new AtomicInteger()).incrementAndGet();
+                if (failingPages.contains(page)) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(gson.toJson(page(page)));
+            }
+        });
+        server.start();
+        api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .build()
+                .create(LegoApiService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        clearState();
+    }
+
+    @Test
+    public void fullSyncWritesEveryPageOnce() throws Exception {
+        CatalogSyncManager manager = newManager();
+
+        long start = SystemClock.elapsedRealtime();
+        manager.forceSync();
+        CatalogSyncManager.SyncProgress result = awaitFinished(manager);
+        long elapsedMs = SystemClock.elapsedRealtime() - start;
+
+        assertEquals(result.error, CatalogSyncManager.SyncProgress.State.DONE, result.state);
+        assertEquals(TOTAL_SETS, legoSetDao.getSetCount());
+        assertEquals(PAGES, requestsPerPage.size());
+        for (AtomicInteger count : requestsPerPage.values()) {
+            assertEquals(1, count.get());
+        }
+        Log.i(TAG, String.format("%d sets in %d pages: %d ms, %.0f sets/s",
+                TOTAL_SETS, PAGES, elapsedMs, TOTAL_SETS * 1000.0 / Math.max(1, elapsedMs)));
+    }
+
+    @Test
+    public void interruptedSyncResumesWithMissingPagesOnly() throws Exception {
+        for (int page = 31; page <= PAGES; page += 3) {
+            failingPages.add(page);
+        }
+        Set<Integer> failed = ConcurrentHashMap.newKeySet();
+        failed.addAll(failingPages);
+
+        CatalogSyncManager first = newManager();
+        first.forceSync();
+        assertEquals(CatalogSyncManager.SyncProgress.State.FAILED, awaitFinished(first).state);
+        assertEquals((PAGES - failed.size()) * PAGE_SIZE, legoSetDao.getSetCount());
+
+        // Новый экземпляр — как после смерти процесса: в памяти ничего, курсор только в SharedPreferences
+        failingPages.clear();
+        requestsPerPage.clear();
+        CatalogSyncManager second = newManager();
+        second.syncIfNeeded();
+        CatalogSyncManager.SyncProgress result = awaitFinished(second);
+
+        assertEquals(result.error, CatalogSyncManager.SyncProgress.State.DONE, result.state);
+        assertEquals(TOTAL_SETS, legoSetDao.getSetCount());
+        assertEquals(failed, requestsPerPage.keySet());
+        assertFalse(requestsPerPage.containsKey(1));
+    }
+
+    @Test
+    public void resyncConfirmsUnchangedRowsAtTheEnd() throws Exception {
+        CatalogSyncManager manager = newManager();
+        manager.forceSync();
+        assertEquals(CatalogSyncManager.SyncProgress.State.DONE, awaitFinished(manager).state);
+
+        long resyncStart = System.currentTimeMillis();
+        CatalogSyncManager again = newManager();
+        again.forceSync();
+        CatalogSyncManager.SyncProgress result = awaitFinished(again);
+
+        // Ничего не изменилось, но каждая строка подтверждена сервером и больше не устаревшая
+        assertEquals(result.error, CatalogSyncManager.SyncProgress.State.DONE, result.state);
+        assertEquals(0, result.setsWritten);
+        assertTrue(legoSetDao.getOutdatedSets(resyncStart).isEmpty());
+    }
+
+    private CatalogSyncManager newManager() {
+        return new CatalogSyncManager(application, () -> api, PAGE_SIZE, PARALLEL_PAGES);
+    }
+
+    private static CatalogSyncManager.SyncProgress awaitFinished(CatalogSyncManager manager) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (SystemClock.elapsedRealtime() < deadline) {
+            CatalogSyncManager.SyncProgress progress = manager.getProgress().getValue();
+            if (progress != null && (progress.state == CatalogSyncManager.SyncProgress.State.DONE
+                    || progress.state == CatalogSyncManager.SyncProgress.State.FAILED)) {
+                return progress;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Sync did not finish in " + TIMEOUT_MS + " ms");
+    }
+
+    private LegoSetResponse page(int page) {
+        List<LegoSet> results = new ArrayList<>();
+        for (int i = (page - 1) * PAGE_SIZE; i < page * PAGE_SIZE; i++) {
+            LegoSet set = new LegoSet();
+            set.setSetNum(String.valueOf(100000 + i));
+            set.setName("Set " + i);
+            set.setYear(1980 + i % 45);
+            set.setTheme("Theme " + i % 20);
+            set.setNumParts(i % 5000);
+            set.setPrice(9.99);
+            set.setRating(4.0);
+            results.add(set);
+        }
+        LegoSetResponse response = new LegoSetResponse();
+        response.setCount(TOTAL_SETS);
+        response.setNext(page < PAGES ? server.url("/api/legosets?page=" + (page + 1)).toString() : null);
+        response.setResults(results);
+        return response;
+    }
+
+    private void clearState() {
+        legoSetDao.deleteAll();
+        application.getSharedPreferences(Constants.SYNC_PREF_NAME, Context.MODE_PRIVATE).edit().clear().commit();
+    }
+}
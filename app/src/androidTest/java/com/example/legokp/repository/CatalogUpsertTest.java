@@ -0,0 +1,132 @@
+package com.example.legokp.repository;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.LegoSetDao;
+import com.example.legokp.database.entity.LegoSetEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * upsertCatalogPage не пишет неизмененные строки (PagingSource сетки не инвалидируется),
+ * а touchConfirmedSets подтверждает их свежесть одной транзакцией.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CatalogUpsertTest {
+
+    private static final int ROWS = 1_200;
+    private static final long OLD = 1_600_000_000_000L;
+
+    private AppDatabase db;
+    private LegoSetDao legoSetDao;
+    private LegoRepository repository;
+    private final AtomicInteger invalidations = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        // Прямые executor'ы: InvalidationTracker обновляется синхронно в конце транзакции
+        db = Room.inMemoryDatabaseBuilder(application, AppDatabase.class)
+                .setQueryExecutor(Runnable::run)
+                .setTransactionExecutor(Runnable::run)
+                .build();
+        legoSetDao = db.legoSetDao();
+        repository = new LegoRepository(application, db);
+
+        List<LegoSetEntity> stored = catalog();
+        for (LegoSetEntity entity : stored) {
+            entity.setLastUpdated(OLD);
+        }
+        legoSetDao.insertAll(stored);
+
+        db.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("lego_sets") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidations.incrementAndGet();
+            }
+        });
+        invalidations.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void unchangedChunksAreNotWritten() {
+        List<LegoSetEntity> page = catalog();
+        for (int from = 0; from < page.size(); from += 100) {
+            LegoRepository.UpsertResult result = repository.upsertCatalogPage(page.subList(from, from + 100));
+            assertEquals(100, result.unchanged);
+            assertEquals(100, result.unchangedSetNums.size());
+            assertFalse(result.hasChanges());
+        }
+
+        assertEquals(0, invalidations.get());
+        assertEquals(ROWS, legoSetDao.getOutdatedSets(OLD + 1).size());
+    }
+
+    @Test
+    public void confirmedSetsAreTouchedInOneTransaction() {
+        List<String> confirmed = new ArrayList<>();
+        for (LegoSetEntity entity : catalog()) {
+            confirmed.add(entity.getSetNum());
+        }
+        long before = System.currentTimeMillis();
+
+        repository.touchConfirmedSets(confirmed);
+
+        // 1 200 ключей — три UPDATE ... IN (...), но одна инвалидация
+        assertEquals(1, invalidations.get());
+        assertTrue(legoSetDao.getOutdatedSets(before).isEmpty());
+    }
+
+    @Test
+    public void changedRowsAreStillUpdated() {
+        LegoSetEntity changed = catalog().get(0);
+        changed.setPrice(1.0);
+        LegoSetEntity added = set(ROWS);
+
+        LegoRepository.UpsertResult result = repository.upsertCatalogPage(Arrays.asList(changed, added, catalog().get(1)));
+
+        assertEquals(1, result.inserted);
+        assertEquals(1, result.updated);
+        assertEquals(1, result.unchanged);
+        assertEquals(1, invalidations.get());
+        assertEquals(1.0, legoSetDao.getSetByNum(changed.getSetNum()).getPrice(), 0.0);
+    }
+
+    private static List<LegoSetEntity> catalog() {
+        List<LegoSetEntity> sets = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            sets.add(set(i));
+        }
+        return sets;
+    }
+
+    private static LegoSetEntity set(int i) {
+        return new LegoSetEntity(String.valueOf(100000 + i), "Set " + i, 2000 + i % 25, "City",
+                100 + i, null, 19.99, 4.0, "8+", false, true, false, null);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.legokp.repository;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.ReviewDao;
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.database.entity.ReviewEntity;
+import com.example.legokp.models.Review;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Слияние страницы отзывов с сервера — одна транзакция и ровно одна инвалидация reviews,
+ * сколько бы строк ни было записано или удалено.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReviewMergeInvalidationTest {
+
+    private static final String SET_NUM = "75192";
+
+    private AppDatabase db;
+    private ReviewDao reviewDao;
+    private ReviewRepository repository;
+    private final AtomicInteger invalidations = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        // Прямые executor'ы: InvalidationTracker обновляется синхронно в конце транзакции
+        db = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .setQueryExecutor(Runnable::run)
+                .setTransactionExecutor(Runnable::run)
+                .build();
+        reviewDao = db.reviewDao();
+        repository = new ReviewRepository(db, null);
+
+        db.legoSetDao().insert(new LegoSetEntity(SET_NUM, "Millennium Falcon", 2017, "Star Wars",
+                7541, null, 799.99, 4.9, "16+", true, true, false, null));
+        reviewDao.insertAll(Arrays.asList(
+                review(1, 5f, "Great", true),
+                review(2, 4f, "Good", true),
+                review(3, 3f, "To be deleted on server", true),
+                review(4, 2f, "Local edit, not sent yet", false)
+        ));
+
+        db.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("reviews") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidations.incrementAndGet();
+            }
+        });
+        invalidations.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void mergeInvalidatesReviewsOnce() {
+        List<Review> server = new ArrayList<>();
+        server.add(apiReview(1, 5f, "Great"));
+        server.add(apiReview(2, 3f, "Changed on server"));
+        server.add(apiReview(4, 1f, "Server copy of the local edit"));
+        for (long id = 5; id < 105; id++) {
+            server.add(apiReview(id, 4f, "New " + id));
+        }
+
+        repository.mergeServerReviews(SET_NUM, server, null, true);
+
+        assertEquals(1, invalidations.get());
+
+        assertNull("Server-deleted review is dropped", reviewDao.getReviewById(3));
+        assertEquals("Changed on server", reviewDao.getReviewById(2).getComment());
+        ReviewEntity localEdit = reviewDao.getReviewById(4);
+        assertEquals("Local edit, not sent yet", localEdit.getComment());
+        assertFalse(localEdit.isSynced());
+        assertTrue(reviewDao.getReviewById(104).isSynced());
+        assertEquals(103, reviewDao.getReviewsForSetSync(SET_NUM).size());
+    }
+
+    @Test
+    public void mergeOfUnchangedPageStillInvalidatesOnce() {
+        List<Review> server = Arrays.asList(
+                apiReview(1, 5f, "Great"),
+                apiReview(2, 4f, "Good"),
+                apiReview(3, 3f, "To be deleted on server"));
+
+        repository.mergeServerReviews(SET_NUM, server, null, true);
+
+        assertEquals(1, invalidations.get());
+    }
+
+    private static ReviewEntity review(long id, float rating, String comment, boolean synced) {
+        ReviewEntity entity = new ReviewEntity(SET_NUM, "user" + id, "User " + id, rating, comment);
+        entity.setReviewId(id);
+        entity.setCreatedAt(1_700_000_000_000L + id);
+        entity.setSynced(synced);
+        return entity;
+    }
+
+    private static Review apiReview(long id, float rating, String comment) {
+        Review review = new Review(SET_NUM, "user" + id, "User " + id, rating, comment);
+        review.setReviewId(id);
+        review.setCreatedAt(1_700_000_000_000L + id);
+        return review;
+    }
+}
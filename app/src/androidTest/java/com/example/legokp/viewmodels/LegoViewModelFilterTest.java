@@ -0,0 +1,139 @@
+package com.example.legokp.viewmodels;
+
+import android.app.Application;
+
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.repository.CatalogSyncManager;
+import com.example.legokp.repository.LegoRepository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Смена FilterOptions в LegoViewModel: запрос с устаревшими фильтрами не публикуется,
+ * даже если он завершился позже запроса с новыми.
+ * Запросы Room выполняются вручную, поэтому порядок их завершения задает тест.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LegoViewModelFilterTest {
+
+    private static final int ALPHA_COUNT = 2;
+    private static final int BETA_COUNT = 3;
+    private static final int ALL_COUNT = 6;
+
+    // Очередь запросов Room: выполняется только из runQueued
+    private final List<Runnable> queued = new ArrayList<>();
+    private final Executor queryExecutor = task -> {
+        synchronized (queued) {
+            queued.add(task);
+        }
+    };
+    private final List<Integer> published = Collections.synchronizedList(new ArrayList<>());
+    private final Observer<Integer> observer = published::add;
+
+    private Application application;
+    private AppDatabase db;
+    private LegoViewModel viewModel;
+
+    @Before
+    public void setUp() {
+        application = ApplicationProvider.getApplicationContext();
+        db = Room.inMemoryDatabaseBuilder(application, AppDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryExecutor(queryExecutor)
+                .build();
+        db.legoSetDao().insertAll(Arrays.asList(
+                set("10001", "Alpha Castle"),
+                set("10002", "Alpha Tower"),
+                set("10003", "Beta Ship"),
+                set("10004", "Beta Station"),
+                set("10005", "Beta Rover"),
+                set("10006", "Gamma Truck")));
+        runQueued(false);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            viewModel = new LegoViewModel(application, new LegoRepository(application, db),
+                    CatalogSyncManager.getInstance(application));
+            viewModel.getFilteredSetCount().observeForever(observer);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                () -> viewModel.getFilteredSetCount().removeObserver(observer));
+        db.close();
+    }
+
+    @Test
+    public void supersededFilterNeverPublishes() {
+        // A и B подряд, до выполнения хотя бы одного запроса
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            viewModel.setSearchQuery("alpha");
+            viewModel.setSearchQuery("beta");
+        });
+
+        // B завершается первым, A и начальный запрос без фильтров — после него
+        runQueued(true);
+        runQueued(false);
+
+        assertEquals(Collections.singletonList(BETA_COUNT), published);
+    }
+
+    @Test
+    public void latestFilterPublishesAfterEachChange() {
+        runQueued(false);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> viewModel.setSearchQuery("alpha"));
+        runQueued(false);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> viewModel.setSearchQuery("beta"));
+        runQueued(false);
+
+        assertEquals(Arrays.asList(ALL_COUNT, ALPHA_COUNT, BETA_COUNT), published);
+    }
+
+    /**
+     * Выполнить накопленные запросы (reverse — в обратном порядке постановки), затем дождаться
+     * доставки значений на главном потоке. Задачи, поставленные по ходу, выполняются следующим проходом.
+     */
+    private void runQueued(boolean reverse) {
+        while (true) {
+            List<Runnable> tasks;
+            synchronized (queued) {
+                if (queued.isEmpty()) break;
+                tasks = new ArrayList<>(queued);
+                queued.clear();
+            }
+            if (reverse) {
+                Collections.reverse(tasks);
+                reverse = false;
+            }
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private static LegoSetEntity set(String setNum, String name) {
+        return new LegoSetEntity(setNum, name, 2020, "City", 500, null, 49.99, 4.0,
+                "8+", false, true, false, null);
+    }
+}
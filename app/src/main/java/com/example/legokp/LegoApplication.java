@@ -2,6 +2,7 @@ package com.example.legokp;
 
 import android.app.Application;
 
+import com.example.legokp.image.FavoriteImageStore;
 import com.example.legokp.network.RetrofitClient;
 
 public class LegoApplication extends Application {
@@ -12,5 +13,8 @@ public class LegoApplication extends Application {
 
         // Initialize RetrofitClient with application context
         RetrofitClient.init(this);
+
+        // Картинки избранного хранятся локально и докачиваются при изменении избранного
+        FavoriteImageStore.getInstance(this).start();
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.legokp.adapter;
 
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,12 +11,18 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.RequestOptions;
 import com.example.legokp.R;
+import com.example.legokp.image.FavoriteImageStore;
+import com.example.legokp.image.ImageMetrics;
+import com.example.legokp.image.ImageRequests;
 import com.example.legokp.models.LegoSet;
 import com.example.legokp.ui.SetDetailActivity;
 import com.google.android.material.button.MaterialButton;
@@ -23,11 +30,18 @@ import com.google.android.material.button.MaterialButton;
 import java.util.Locale;
 import java.util.Objects;
 
-public class LegoSetAdapter extends ListAdapter<LegoSet, LegoSetAdapter.ViewHolder> {
+/**
+ * Адаптер сетки наборов. Данные приходят страницами (PagingData), DiffUtil тот же, что и раньше.
+ */
+public class LegoSetAdapter extends PagingDataAdapter<LegoSet, LegoSetAdapter.ViewHolder> {
 
     private final Context context;
     private final OnFavoriteClickListener favoriteClickListener;
     private final OnDeleteClickListener deleteClickListener;
+    private final String screen; // для ImageMetrics
+    private final RequestManager requestManager;
+    private final RequestOptions thumbnailOptions;
+    private final FavoriteImageStore imageStore;
 
     public interface OnFavoriteClickListener {
         void onFavoriteClick(LegoSet legoSet, int position);
@@ -37,11 +51,16 @@ public class LegoSetAdapter extends ListAdapter<LegoSet, LegoSetAdapter.ViewHold
         void onDeleteClick(LegoSet legoSet, int position);
     }
 
-    public LegoSetAdapter(Context context, OnFavoriteClickListener favoriteListener, OnDeleteClickListener deleteListener) {
+    public LegoSetAdapter(Context context, String screen, OnFavoriteClickListener favoriteListener,
+                          OnDeleteClickListener deleteListener) {
         super(DIFF_CALLBACK);
         this.context = context;
         this.favoriteClickListener = favoriteListener;
         this.deleteClickListener = deleteListener;
+        this.screen = screen;
+        this.requestManager = Glide.with(context);
+        this.thumbnailOptions = ImageRequests.gridThumbnail(context);
+        this.imageStore = FavoriteImageStore.getInstance(context);
     }
 
     @NonNull
@@ -63,10 +82,8 @@ public class LegoSetAdapter extends ListAdapter<LegoSet, LegoSetAdapter.ViewHold
         holder.tvParts.setText(String.valueOf(set.getNumParts()));
         holder.tvRating.setText(String.format(Locale.US, "%.1f", set.getRating()));
 
-        Glide.with(context)
-                .load(set.getSetImgUrl())
-                .placeholder(R.drawable.ic_lego_placeholder)
-                .error(R.drawable.ic_lego_placeholder)
+        thumbnailRequest(set.getSetImgUrl())
+                .listener(ImageMetrics.listener(screen))
                 .into(holder.ivSet);
 
         holder.tvExclusive.setVisibility(set.isExclusive() ? View.VISIBLE : View.GONE);
@@ -108,6 +125,22 @@ public class LegoSetAdapter extends ListAdapter<LegoSet, LegoSetAdapter.ViewHold
         });
     }
 
+    /**
+     * Запрос миниатюры для карточки. Предзагрузка (SetThumbnailPreloader) использует тот же запрос,
+     * иначе ключи кэша не совпадут. Для избранного грузится закрепленный локальный файл.
+     */
+    public RequestBuilder<Drawable> thumbnailRequest(String url) {
+        return requestManager.load(imageStore.resolve(url)).apply(thumbnailOptions);
+    }
+
+    public RequestManager getRequestManager() {
+        return requestManager;
+    }
+
+    public RequestOptions getThumbnailOptions() {
+        return thumbnailOptions;
+    }
+
     private void updateFavoriteButton(ImageButton button, boolean isFavorite) {
         if (isFavorite) {
             button.setImageResource(R.drawable.ic_favorite);
@@ -150,7 +183,8 @@ public class LegoSetAdapter extends ListAdapter<LegoSet, LegoSetAdapter.ViewHold
             // ✨ ИСПРАВЛЕНО: Используем полное имя класса Objects
             return oldItem.isFavorite() == newItem.isFavorite()
                 && java.util.Objects.equals(oldItem.getName(), newItem.getName())
-                && oldItem.getPrice() == newItem.getPrice();
+                && oldItem.getPrice() == newItem.getPrice()
+                && oldItem.getRating() == newItem.getRating(); // живое среднее по отзывам
         }
     };
 }
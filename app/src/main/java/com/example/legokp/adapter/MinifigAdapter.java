@@ -10,7 +10,10 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.RequestOptions;
 import com.example.legokp.R;
+import com.example.legokp.image.ImageMetrics;
+import com.example.legokp.image.ImageRequests;
 import com.example.legokp.models.Minifig;
 
 import java.util.List;
@@ -19,6 +22,7 @@ public class
 MinifigAdapter extends RecyclerView.Adapter<MinifigAdapter.ViewHolder> {
 
     private List<Minifig> minifigs;
+    private RequestOptions thumbnailOptions;
 
     public MinifigAdapter(List<Minifig> minifigs) {
         this.minifigs = minifigs;
@@ -28,6 +32,9 @@ MinifigAdapter extends RecyclerView.Adapter<MinifigAdapter.ViewHolder> {
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_minifig, parent, false);
+        if (thumbnailOptions == null) {
+            thumbnailOptions = ImageRequests.minifigThumbnail(parent.getContext());
+        }
         return new ViewHolder(view);
     }
 
@@ -39,8 +46,8 @@ MinifigAdapter extends RecyclerView.Adapter<MinifigAdapter.ViewHolder> {
         // Use setImgUrl instead of imageUrl
         Glide.with(holder.itemView.getContext())
                 .load(minifig.getSetImgUrl())
-                .placeholder(R.drawable.ic_lego_placeholder)
-                .error(R.drawable.ic_lego_placeholder)
+                .apply(thumbnailOptions)
+                .listener(ImageMetrics.listener(ImageMetrics.SCREEN_MINIFIGS))
                 .into(holder.imageView);
     }
 
@@ -9,23 +9,25 @@ import android.widget.RatingBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.legokp.R;
 import com.example.legokp.database.entity.ReviewEntity;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 /**
  * Адаптер для отображения списка отзывов
  */
 public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ViewHolder> {
 
-    private List<ReviewEntity> reviews;
+    private final AsyncListDiffer<ReviewEntity> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private Context context;
     private OnReviewActionListener listener;
     private String currentUserId;
@@ -39,7 +41,6 @@ public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ViewHolder
         this.context = context;
         this.currentUserId = currentUserId;
         this.listener = listener;
-        this.reviews = new ArrayList<>();
     }
 
     @NonNull
@@ -52,7 +53,7 @@ public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        ReviewEntity review = reviews.get(position);
+        ReviewEntity review = differ.getCurrentList().get(position);
 
         // Username
         holder.tvUsername.setText(review.getUsername());
@@ -104,35 +105,17 @@ public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ViewHolder
 
     @Override
     public int getItemCount() {
-        return reviews != null ? reviews.size() : 0;
+        return differ.getCurrentList().size();
     }
 
+    /**
+     * Заменить список. Разница считается в фоне (AsyncListDiffer), на главном потоке
+     * применяются только изменившиеся строки: подгрузка следующей страницы — вставка в конец.
+     * Тот же объект списка (панель обновила только агрегаты) ничего не делает.
+     */
     public void updateReviews(List<ReviewEntity> newReviews) {
         if (newReviews != null) {
-            this.reviews = new ArrayList<>(newReviews);
-            notifyDataSetChanged();
-        }
-    }
-
-    public void addReview(ReviewEntity review) {
-        if (review != null) {
-            this.reviews.add(0, review); // Добавить в начало
-            notifyItemInserted(0);
-        }
-    }
-
-    public void removeReview(int position) {
-        if (position >= 0 && position < reviews.size()) {
-            reviews.remove(position);
-            notifyItemRemoved(position);
-            notifyItemRangeChanged(position, reviews.size());
-        }
-    }
-
-    public void updateReview(int position, ReviewEntity review) {
-        if (position >= 0 && position < reviews.size()) {
-            reviews.set(position, review);
-            notifyItemChanged(position);
+            differ.submitList(newReviews);
         }
     }
 
@@ -153,4 +136,19 @@ public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ViewHolder
             btnDelete = itemView.findViewById(R.id.btnDelete);
         }
     }
-}
\ No newline at end of file
+
+    private static final DiffUtil.ItemCallback<ReviewEntity> DIFF_CALLBACK = new DiffUtil.ItemCallback<ReviewEntity>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ReviewEntity oldItem, @NonNull ReviewEntity newItem) {
+            return oldItem.getReviewId() == newItem.getReviewId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ReviewEntity oldItem, @NonNull ReviewEntity newItem) {
+            return oldItem.getRating() == newItem.getRating()
+                    && oldItem.isSynced() == newItem.isSynced()
+                    && Objects.equals(oldItem.getComment(), newItem.getComment())
+                    && Objects.equals(oldItem.getUsername(), newItem.getUsername());
+        }
+    };
+}
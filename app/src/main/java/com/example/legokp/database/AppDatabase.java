@@ -2,13 +2,17 @@ package com.example.legokp.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.example.legokp.database.dao.LegoSetDao;
 import com.example.legokp.database.dao.ReviewDao;
 import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.database.entity.LegoSetFtsEntity;
+import com.example.legokp.database.entity.ReviewAggregateEntity;
 import com.example.legokp.database.entity.ReviewEntity;
 
 import java.util.concurrent.ExecutorService;
@@ -17,13 +21,25 @@ import java.util.concurrent.Executors;
 /**
  * Главная база данных приложения
  * Версия 2: добавлена таблица отзывов
+ * Версия 3: полнотекстовый индекс lego_sets_fts
+ * Версия 4: lego_sets.etag для условных запросов
+ * Версия 5: review_aggregates, поддерживается триггерами на reviews
+ * Версия 6: индекс reviews(set_num, created_at) для постраничной загрузки
+ * Версия 7: review_aggregates.remote_* — рейтинги с сервера
+ * Версия 8: lego_sets.name_fold/theme_fold — регистронезависимый поиск и сортировка не только для ASCII
+ * Версия 9: lego_sets_fts на токенизаторе unicode61 (регистр кириллицы в поиске по индексу)
+ * Версия 10: индекс lego_sets(last_updated, set_num) для обхода устаревших строк
+ * Версия 11: reviews.client_id — ключ идемпотентности пакетной отправки
+ * Версия 12: lego_sets.last_modified — Last-Modified сервера для If-Modified-Since
  */
 @Database(
         entities = {
                 LegoSetEntity.class,
-                ReviewEntity.class  // ✨ НОВОЕ
+                ReviewEntity.class,  // ✨ НОВОЕ
+                LegoSetFtsEntity.class,
+                ReviewAggregateEntity.class
         },
-        version = 2,  // ✨ Увеличили версию
+        version = 12,
         exportSchema = false
 )
 public abstract class AppDatabase extends RoomDatabase {
@@ -47,6 +63,12 @@ public abstract class AppDatabase extends RoomDatabase {
                                     "lego_database"
                             )
                             .fallbackToDestructiveMigration()  // При изменении версии пересоздать БД
+                            .addCallback(new Callback() {
+                                @Override
+                                public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                                    ReviewAggregateTriggers.create(db);
+                                }
+                            })
                             .build();
                 }
             }
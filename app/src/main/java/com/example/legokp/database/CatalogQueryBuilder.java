@@ -0,0 +1,118 @@
+package com.example.legokp.database;
+
+import android.text.TextUtils;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.example.legokp.database.dao.LegoSetDao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Построитель параметризованного SQL-запроса к каталогу (lego_sets).
+ * Поиск, тема, диапазоны года и деталей и сортировка выполняются в SQLite,
+ * поэтому из курсора читаются только подходящие строки.
+ *
+ * Семантика совпадает с прежней фильтрацией в Java:
+ * - поиск и тема: подстрока без учета регистра (instr по name_fold/theme_fold вместо LIKE, чтобы % и _ не были спецсимволами);
+ * - диапазоны включительные;
+ * - сортировка по названию как String.CASE_INSENSITIVE_ORDER, для любого алфавита (см. CatalogText.fold);
+ * - сортировка стабильная: при равенстве ключа порядок как у прежнего полного списка (name ASC).
+ */
+public class CatalogQueryBuilder {
+
+    private String query;
+    private String theme;
+    private int minYear = Integer.MIN_VALUE;
+    private int maxYear = Integer.MAX_VALUE;
+    private int minParts = Integer.MIN_VALUE;
+    private int maxParts = Integer.MAX_VALUE;
+    private String sortBy = "name_asc";
+
+    public CatalogQueryBuilder query(String query) {
+        this.query = query;
+        return this;
+    }
+
+    public CatalogQueryBuilder theme(String theme) {
+        this.theme = theme;
+        return this;
+    }
+
+    public CatalogQueryBuilder yearRange(int minYear, int maxYear) {
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        return this;
+    }
+
+    public CatalogQueryBuilder partsRange(int minParts, int maxParts) {
+        this.minParts = minParts;
+        this.maxParts = maxParts;
+        return this;
+    }
+
+    public CatalogQueryBuilder sortBy(String sortBy) {
+        this.sortBy = sortBy;
+        return this;
+    }
+
+    /**
+     * Строки каталога с фильтрами и сортировкой; rating — живое среднее по отзывам, если они есть
+     */
+    public SupportSQLiteQuery build() {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT " + LegoSetDao.COLUMNS_WITH_LIVE_RATING + " FROM lego_sets"
+                + LegoSetDao.JOIN_REVIEW_AGGREGATES + buildWhere(args) + " ORDER BY " + orderBy(sortBy);
+        return new SimpleSQLiteQuery(sql, args.toArray());
+    }
+
+    /**
+     * Количество строк с теми же фильтрами (для заголовка при постраничной загрузке)
+     */
+    public SupportSQLiteQuery buildCount() {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM lego_sets" + buildWhere(args);
+        return new SimpleSQLiteQuery(sql, args.toArray());
+    }
+
+    private String buildWhere(List<Object> args) {
+        StringBuilder where = new StringBuilder(" WHERE year BETWEEN ? AND ? AND num_parts BETWEEN ? AND ?");
+        args.add(minYear);
+        args.add(maxYear);
+        args.add(minParts);
+        args.add(maxParts);
+
+        if (!TextUtils.isEmpty(query)) {
+            where.append(" AND instr(name_fold, ?) > 0");
+            args.add(CatalogText.fold(query));
+        }
+        if (!TextUtils.isEmpty(theme)) {
+            where.append(" AND instr(theme_fold, ?) > 0");
+            args.add(CatalogText.fold(theme));
+        }
+        return where.toString();
+    }
+
+    /**
+     * Все девять ключей сортировки из FilterOptions.sortBy.
+     * name ASC в конце повторяет порядок исходного списка, set_num делает порядок детерминированным.
+     * rating — псевдоним результата, то есть сортировка идет по живому среднему.
+     */
+    static String orderBy(String sortBy) {
+        String key;
+        switch (sortBy != null ? sortBy : "name_asc") {
+            case "name_desc": key = "name_fold DESC"; break;
+            case "price_asc": key = "price ASC"; break;
+            case "price_desc": key = "price DESC"; break;
+            case "rating_desc": key = "rating DESC"; break;
+            case "year_desc": key = "year DESC"; break;
+            case "year_asc": key = "year ASC"; break;
+            case "parts_desc": key = "num_parts DESC"; break;
+            case "parts_asc": key = "num_parts ASC"; break;
+            default: key = "name_fold ASC"; break;
+        }
+        return key + ", name ASC, lego_sets.set_num ASC";
+    }
+}
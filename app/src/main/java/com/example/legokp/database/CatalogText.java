@@ -0,0 +1,27 @@
+package com.example.legokp.database;
+
+/**
+ * Нормализация текста каталога для поиска и сортировки в SQLite.
+ * lower() и COLLATE NOCASE в SQLite работают только с ASCII, поэтому свернутые
+ * колонки (name_fold, theme_fold) заполняются из Java и сравниваются как BINARY.
+ */
+public final class CatalogText {
+
+    private CatalogText() {
+    }
+
+    /**
+     * Посимвольное сворачивание регистра, как в String.CASE_INSENSITIVE_ORDER:
+     * BINARY-порядок свернутых строк совпадает с этим компаратором для любого алфавита.
+     * Для подстрочного поиска совпадает с toLowerCase() везде, кроме символов,
+     * меняющих длину при смене регистра (например, турецкая İ).
+     */
+    public static String fold(String s) {
+        if (s == null) return null;
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
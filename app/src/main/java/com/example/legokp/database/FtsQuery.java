@@ -0,0 +1,81 @@
+package com.example.legokp.database;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Подготовка пользовательского ввода для MATCH по lego_sets_fts.
+ * Ввод разбивается на слова, спецсимволы FTS отбрасываются, к каждому слову добавляется * (поиск по префиксу).
+ */
+public class FtsQuery {
+
+    private FtsQuery() {
+    }
+
+    /**
+     * "star war" -> "star* war*" (все слова, в любой колонке)
+     * Возвращает null, если в вводе нет ни одного слова.
+     */
+    public static String prefix(String input) {
+        return join(tokenize(input), "");
+    }
+
+    /**
+     * "star war" -> "name:star* name:war*" (все слова, только в названии)
+     * Возвращает null, если в вводе нет ни одного слова.
+     */
+    public static String prefixInColumn(String input, String column) {
+        return join(tokenize(input), column + ":");
+    }
+
+    /**
+     * Релевантность строки по matchinfo(lego_sets_fts, 'pcx'), как функция rank из документации FTS4:
+     * для каждого слова запроса и колонки — доля совпадений в этой строке от совпадений во всех строках,
+     * умноженная на вес колонки. Редкое слово весит больше частого.
+     * @param columnWeights веса колонок в порядке LegoSetFtsEntity (name, theme, description)
+     */
+    public static double rank(byte[] matchInfo, double... columnWeights) {
+        // matchinfo — массив 32-битных целых в порядке байтов платформы
+        IntBuffer ints = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = ints.get(0);
+        int columns = ints.get(1);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int offset = 2 + 3 * (phrase * columns + column);
+                int hitsThisRow = ints.get(offset);
+                int hitsAllRows = ints.get(offset + 1);
+                if (hitsThisRow > 0) {
+                    double weight = column < columnWeights.length ? columnWeights[column] : 1.0;
+                    score += weight * hitsThisRow / hitsAllRows;
+                }
+            }
+        }
+        return score;
+    }
+
+    private static String join(List<String> tokens, String columnPrefix) {
+        if (tokens.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(columnPrefix).append(token).append('*');
+        }
+        return sb.toString();
+    }
+
+    private static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<>();
+        if (input == null) return tokens;
+        // Токенизатор unicode61 (LegoSetFtsEntity) тоже делит текст по всему, что не буква и не цифра
+        for (String part : CatalogText.fold(input).split("[^\\p{L}\\p{N}]+")) {
+            if (!part.isEmpty()) {
+                tokens.add(part);
+            }
+        }
+        return tokens;
+    }
+}
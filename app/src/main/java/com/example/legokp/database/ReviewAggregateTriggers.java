@@ -0,0 +1,60 @@
+package com.example.legokp.database;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Триггеры, которые держат review_aggregates точными при любой записи в reviews.
+ * Вставка прибавляет оценку, удаление вычитает, обновление rating или set_num делает и то, и другое.
+ * Удаления по CASCADE (при удалении набора) тоже проходят через триггеры.
+ * Создаются при каждом открытии БД (IF NOT EXISTS), поэтому переживают пересоздание схемы.
+ */
+final class ReviewAggregateTriggers {
+
+    private ReviewAggregateTriggers() {}
+
+    static void create(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS reviews_aggregate_insert AFTER INSERT ON reviews BEGIN "
+                + add("NEW")
+                + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS reviews_aggregate_delete AFTER DELETE ON reviews BEGIN "
+                + subtract("OLD")
+                + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS reviews_aggregate_update AFTER UPDATE OF rating, set_num ON reviews BEGIN "
+                + subtract("OLD")
+                + add("NEW")
+                + " END");
+    }
+
+    private static String add(String row) {
+        return "INSERT OR IGNORE INTO review_aggregates (set_num) VALUES (" + row + ".set_num); "
+                + "UPDATE review_aggregates SET "
+                + "review_count = review_count + 1, "
+                + "rating_sum = rating_sum + " + row + ".rating, "
+                + "average_rating = (rating_sum + " + row + ".rating) / (review_count + 1), "
+                + histogram(row, "+")
+                + " WHERE set_num = " + row + ".set_num;";
+    }
+
+    private static String subtract(String row) {
+        // При нуле отзывов сумма и среднее обнуляются явно, чтобы не копить ошибку округления
+        return "UPDATE review_aggregates SET "
+                + "review_count = review_count - 1, "
+                + "rating_sum = CASE WHEN review_count > 1 THEN rating_sum - " + row + ".rating ELSE 0 END, "
+                + "average_rating = CASE WHEN review_count > 1 "
+                + "THEN (rating_sum - " + row + ".rating) / (review_count - 1) ELSE 0 END, "
+                + histogram(row, "-")
+                + " WHERE set_num = " + row + ".set_num;";
+    }
+
+    private static String histogram(String row, String op) {
+        String bucket = "MAX(1, MIN(5, CAST(ROUND(" + row + ".rating) AS INTEGER)))";
+        StringBuilder sql = new StringBuilder();
+        for (int star = 1; star <= 5; star++) {
+            if (star > 1) sql.append(", ");
+            sql.append("star_").append(star).append(" = star_").append(star)
+                    .append(' ').append(op).append(" (").append(bucket).append(" = ").append(star).append(')');
+        }
+        return sql.toString();
+    }
+}
@@ -1,20 +1,52 @@
 package com.example.legokp.database.dao;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
+import com.example.legokp.database.FtsQuery;
+import com.example.legokp.database.entity.LegoSetCatalogFields;
 import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.database.entity.LegoSetFtsMatch;
+import com.example.legokp.database.entity.ReviewAggregateEntity;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Dao
 public interface LegoSetDao {
 
+    /**
+     * Колонки lego_sets, где rating заменен живым средним из review_aggregates:
+     * серверное среднее, если оно получено, иначе локальное по отзывам, иначе рейтинг каталога.
+     * Используется вместе с JOIN_REVIEW_AGGREGATES в запросах для сетки.
+     */
+    String COLUMNS_WITH_LIVE_RATING = "lego_sets.set_num, lego_sets.name, lego_sets.name_fold, lego_sets.year, "
+            + "lego_sets.theme, lego_sets.theme_fold, "
+            + "lego_sets.num_parts, lego_sets.set_img_url, lego_sets.price, "
+            + "CASE WHEN agg.remote_review_count > 0 THEN agg.remote_average_rating "
+            + "WHEN agg.review_count > 0 THEN agg.average_rating ELSE lego_sets.rating END AS rating, "
+            + "lego_sets.age_range, lego_sets.is_exclusive, lego_sets.in_stock, lego_sets.is_favorite, "
+            + "lego_sets.description, lego_sets.last_updated, lego_sets.etag, lego_sets.last_modified";
+
+    String JOIN_REVIEW_AGGREGATES = " LEFT JOIN review_aggregates AS agg ON agg.set_num = lego_sets.set_num";
+
+    // Веса колонок lego_sets_fts в ранжированном поиске
+    double SEARCH_NAME_WEIGHT = 4.0;
+    double SEARCH_THEME_WEIGHT = 2.0;
+    double SEARCH_DESCRIPTION_WEIGHT = 1.0;
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(LegoSetEntity legoSet);
 
@@ -24,35 +56,116 @@ public interface LegoSetDao {
     @Update
     void update(LegoSetEntity legoSet);
 
+    /**
+     * Вставить только новые строки (существующие не трогаются)
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertNew(List<LegoSetEntity> legoSets);
+
+    /**
+     * Обновить серверные колонки на месте, не трогая is_favorite.
+     * В отличие от REPLACE строка не удаляется, поэтому CASCADE на reviews не срабатывает.
+     */
+    @Update(entity = LegoSetEntity.class)
+    int updateCatalogFields(List<LegoSetCatalogFields> fields);
+
     @Delete
     void delete(LegoSetEntity legoSet);
 
     @Query("DELETE FROM lego_sets")
     void deleteAll();
 
-    @Query("SELECT * FROM lego_sets ORDER BY name ASC")
-    LiveData<List<LegoSetEntity>> getAllSets();
+    /**
+     * Каталог с фильтрами и сортировкой (запрос строит CatalogQueryBuilder), постранично:
+     * в память загружаются только окна строк вокруг видимой области
+     */
+    @RawQuery(observedEntities = {LegoSetEntity.class, ReviewAggregateEntity.class})
+    PagingSource<Integer, LegoSetEntity> getFilteredSetsPaged(SupportSQLiteQuery query);
+
+    /**
+     * Количество строк по запросу CatalogQueryBuilder.buildCount
+     */
+    @RawQuery(observedEntities = LegoSetEntity.class)
+    LiveData<Integer> getFilteredSetCount(SupportSQLiteQuery query);
 
     @Query("SELECT * FROM lego_sets WHERE set_num = :setNum LIMIT 1")
     LegoSetEntity getSetByNum(String setNum);
 
+    @Query("SELECT * FROM lego_sets WHERE set_num IN (:setNums)")
+    List<LegoSetEntity> getSetsByNums(List<String> setNums);
+
     @Query("SELECT * FROM lego_sets WHERE set_num = :setNum LIMIT 1")
     LiveData<LegoSetEntity> getSetByNumLive(String setNum);
 
-    // ✅ LiveData версия для автообновления
-    @Query("SELECT * FROM lego_sets WHERE is_favorite = 1 ORDER BY name ASC")
-    LiveData<List<LegoSetEntity>> getFavoriteSets();
+    /**
+     * Поиск по FTS-индексу (название, тема, описание), по алфавиту.
+     * @param matchQuery выражение MATCH, см. FtsQuery.prefix
+     */
+    @Query("SELECT lego_sets.* FROM lego_sets " +
+            "JOIN lego_sets_fts ON lego_sets.rowid = lego_sets_fts.rowid " +
+            "WHERE lego_sets_fts MATCH :matchQuery ORDER BY lego_sets.name_fold ASC, lego_sets.set_num ASC")
+    LiveData<List<LegoSetEntity>> searchSetsFts(String matchQuery);
+
+    /**
+     * Все совпадения по FTS-индексу с matchinfo для ранжирования (без остальных колонок каталога)
+     */
+    @Query("SELECT lego_sets.set_num, lego_sets.name_fold, matchinfo(lego_sets_fts, 'pcx') AS match_info " +
+            "FROM lego_sets JOIN lego_sets_fts ON lego_sets.rowid = lego_sets_fts.rowid " +
+            "WHERE lego_sets_fts MATCH :matchQuery")
+    List<LegoSetFtsMatch> getFtsMatches(String matchQuery);
+
+    /**
+     * Поиск с ранжированием по релевантности FTS (FtsQuery.rank): совпадение в названии весит больше,
+     * чем в теме, а в теме — больше, чем в описании; при равной релевантности — по алфавиту.
+     * Строки каталога читаются только для первых limit совпадений.
+     * @param matchQuery выражение MATCH по всем колонкам (FtsQuery.prefix)
+     * @param limit не больше 500 (ограничение SQLite на число параметров в IN)
+     */
+    @Transaction
+    default List<LegoSetEntity> searchSetsRanked(String matchQuery, int limit) {
+        List<LegoSetFtsMatch> matches = getFtsMatches(matchQuery);
+        Map<String, Double> scores = new HashMap<>();
+        for (LegoSetFtsMatch match : matches) {
+            scores.put(match.getSetNum(), FtsQuery.rank(match.getMatchInfo(),
+                    SEARCH_NAME_WEIGHT, SEARCH_THEME_WEIGHT, SEARCH_DESCRIPTION_WEIGHT));
+        }
+        matches.sort(Comparator.comparing((LegoSetFtsMatch match) -> scores.get(match.getSetNum()))
+                .reversed()
+                .thenComparing(LegoSetFtsMatch::getNameFold, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(LegoSetFtsMatch::getSetNum));
+
+        List<String> top = new ArrayList<>();
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            top.add(matches.get(i).getSetNum());
+        }
+        if (top.isEmpty()) return new ArrayList<>();
+
+        Map<String, LegoSetEntity> bySetNum = new HashMap<>();
+        for (LegoSetEntity entity : getSetsByNums(top)) {
+            bySetNum.put(entity.getSetNum(), entity);
+        }
+        List<LegoSetEntity> ranked = new ArrayList<>();
+        for (String setNum : top) {
+            LegoSetEntity entity = bySetNum.get(setNum);
+            if (entity != null) ranked.add(entity);
+        }
+        return ranked;
+    }
+
+    @Query("SELECT " + COLUMNS_WITH_LIVE_RATING + " FROM lego_sets" + JOIN_REVIEW_AGGREGATES
+            + " WHERE lego_sets.is_favorite = 1 ORDER BY lego_sets.name ASC")
+    PagingSource<Integer, LegoSetEntity> getFavoriteSetsPaged();
+
+    /**
+     * Картинки избранных наборов (для FavoriteImageStore)
+     */
+    @Query("SELECT set_img_url FROM lego_sets WHERE is_favorite = 1 AND set_img_url IS NOT NULL AND set_img_url != ''")
+    LiveData<List<String>> getFavoriteImageUrls();
 
     // ✅ НОВОЕ: Синхронная версия для прямых запросов
     @Query("SELECT * FROM lego_sets WHERE is_favorite = 1 ORDER BY name ASC")
     List<LegoSetEntity> getFavoriteSetsSync();
 
-    @Query("SELECT * FROM lego_sets WHERE theme = :theme ORDER BY name ASC")
-    LiveData<List<LegoSetEntity>> getSetsByTheme(String theme);
-
-    @Query("SELECT * FROM lego_sets WHERE name LIKE '%' || :searchQuery || '%' ORDER BY name ASC")
-    LiveData<List<LegoSetEntity>> searchSets(String searchQuery);
-
     @Query("UPDATE lego_sets SET is_favorite = :isFavorite WHERE set_num = :setNum")
     void updateFavoriteStatus(String setNum, boolean isFavorite);
 
@@ -62,9 +175,33 @@ public interface LegoSetDao {
     @Query("SELECT COUNT(*) FROM lego_sets WHERE is_favorite = 1")
     int getFavoriteCount();
 
+    @Query("SELECT COUNT(*) FROM lego_sets WHERE is_favorite = 1")
+    LiveData<Integer> getFavoriteCountLive();
+
     @Query("SELECT * FROM lego_sets WHERE last_updated < :timestamp")
     List<LegoSetEntity> getOutdatedSets(long timestamp);
 
+    /**
+     * Устаревшие строки после курсора (afterUpdated, afterSetNum) в порядке (last_updated, set_num)
+     */
+    @Query("SELECT * FROM lego_sets WHERE last_updated < :timestamp "
+            + "AND (last_updated > :afterUpdated OR (last_updated = :afterUpdated AND set_num > :afterSetNum)) "
+            + "ORDER BY last_updated ASC, set_num ASC LIMIT :limit")
+    List<LegoSetEntity> getOutdatedSetsAfter(long timestamp, long afterUpdated, String afterSetNum, int limit);
+
+    /**
+     * Валидаторы последнего ответа api/legosets/{setNum} (ETag и Last-Modified) и время проверки
+     */
+    @Query("UPDATE lego_sets SET etag = :etag, last_modified = :lastModified, last_updated = :lastUpdated "
+            + "WHERE set_num = :setNum")
+    void updateValidators(String setNum, String etag, String lastModified, long lastUpdated);
+
+    /**
+     * Отметить строки как подтвержденные сервером без изменения данных
+     */
+    @Query("UPDATE lego_sets SET last_updated = :lastUpdated WHERE set_num IN (:setNums)")
+    void touchLastUpdated(List<String> setNums, long lastUpdated);
+
     @Query("SELECT COUNT(*) FROM lego_sets WHERE set_num = :setNum")
     int checkSetExists(String setNum);
 }
\ No newline at end of file
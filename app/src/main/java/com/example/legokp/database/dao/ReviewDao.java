@@ -7,7 +7,9 @@ import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
+import com.example.legokp.database.entity.ReviewAggregateEntity;
 import com.example.legokp.database.entity.ReviewEntity;
 
 import java.util.List;
@@ -30,6 +32,12 @@ public interface ReviewDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<ReviewEntity> reviews);
 
+    /**
+     * Вставить или обновить отзывы без удаления строк (в отличие от REPLACE)
+     */
+    @Upsert
+    void upsertAll(List<ReviewEntity> reviews);
+
     /**
      * Обновить отзыв
      */
@@ -60,6 +68,43 @@ public interface ReviewDao {
     @Query("SELECT * FROM reviews WHERE set_num = :setNum ORDER BY created_at DESC")
     List<ReviewEntity> getReviewsForSetSync(String setNum);
 
+    /**
+     * Первая страница последних отзывов набора (без LiveData)
+     */
+    @Query("SELECT * FROM reviews WHERE set_num = :setNum ORDER BY created_at DESC, review_id DESC LIMIT :limit")
+    List<ReviewEntity> getLatestReviewsForSet(String setNum, int limit);
+
+    /**
+     * Следующая страница отзывов после ключа (createdAt, reviewId), новые сверху.
+     * Keyset вместо OFFSET: стоимость не зависит от номера страницы.
+     */
+    @Query("SELECT * FROM reviews WHERE set_num = :setNum AND (created_at, review_id) < (:createdAt, :reviewId) "
+            + "ORDER BY created_at DESC, review_id DESC LIMIT :limit")
+    List<ReviewEntity> getReviewsPageBefore(String setNum, long createdAt, long reviewId, int limit);
+
+    /**
+     * Все отзывы набора от начала до ключа (createdAt, reviewId) включительно — уже загруженные страницы
+     */
+    @Query("SELECT * FROM reviews WHERE set_num = :setNum AND (created_at, review_id) >= (:createdAt, :reviewId) "
+            + "ORDER BY created_at DESC, review_id DESC")
+    List<ReviewEntity> getReviewsDownTo(String setNum, long createdAt, long reviewId);
+
+    /**
+     * Есть ли отзывы старше ключа (createdAt, reviewId)
+     */
+    @Query("SELECT EXISTS(SELECT 1 FROM reviews WHERE set_num = :setNum "
+            + "AND (created_at, review_id) < (:createdAt, :reviewId))")
+    boolean hasReviewsBefore(String setNum, long createdAt, long reviewId);
+
+    /**
+     * Отзывы набора с ключом в [from, before) — диапазон, который покрывает страница ответа сервера
+     */
+    @Query("SELECT * FROM reviews WHERE set_num = :setNum "
+            + "AND (created_at, review_id) >= (:fromCreatedAt, :fromReviewId) "
+            + "AND (created_at, review_id) < (:beforeCreatedAt, :beforeReviewId)")
+    List<ReviewEntity> getReviewsInRange(String setNum, long fromCreatedAt, long fromReviewId,
+                                         long beforeCreatedAt, long beforeReviewId);
+
     /**
      * Получить все отзывы пользователя
      */
@@ -73,17 +118,48 @@ public interface ReviewDao {
     ReviewEntity getReviewById(long reviewId);
 
     /**
-     * Получить средний рейтинг для набора
+     * Получить средний рейтинг для набора (из review_aggregates, null если отзывов нет)
      */
-    @Query("SELECT AVG(rating) FROM reviews WHERE set_num = :setNum")
+    @Query("SELECT average_rating FROM review_aggregates WHERE set_num = :setNum AND review_count > 0")
     LiveData<Float> getAverageRating(String setNum);
 
     /**
-     * Получить количество отзывов для набора
+     * Получить количество отзывов для набора (из review_aggregates)
      */
-    @Query("SELECT COUNT(*) FROM reviews WHERE set_num = :setNum")
+    @Query("SELECT COALESCE((SELECT review_count FROM review_aggregates WHERE set_num = :setNum), 0)")
     LiveData<Integer> getReviewCount(String setNum);
 
+    /**
+     * Агрегаты отзывов набора: количество, среднее, гистограмма (null, если отзывов еще не было)
+     */
+    @Query("SELECT * FROM review_aggregates WHERE set_num = :setNum")
+    LiveData<ReviewAggregateEntity> getAggregate(String setNum);
+
+    /**
+     * Агрегаты отзывов набора (без LiveData, для снимка панели отзывов)
+     */
+    @Query("SELECT * FROM review_aggregates WHERE set_num = :setNum")
+    ReviewAggregateEntity getAggregateSync(String setNum);
+
+    /**
+     * Создать пустую строку агрегатов, если ее нет (локальные колонки остаются за триггерами)
+     */
+    @Query("INSERT OR IGNORE INTO review_aggregates (set_num) VALUES (:setNum)")
+    void ensureAggregate(String setNum);
+
+    /**
+     * Записать серверный рейтинг набора
+     */
+    @Query("UPDATE review_aggregates SET remote_review_count = :count, remote_average_rating = :average, "
+            + "remote_fetched_at = :fetchedAt WHERE set_num = :setNum")
+    void updateRemoteRating(String setNum, int count, double average, long fetchedAt);
+
+    /**
+     * Из списка наборов — те, чей серверный рейтинг получен не раньше since
+     */
+    @Query("SELECT set_num FROM review_aggregates WHERE set_num IN (:setNums) AND remote_fetched_at >= :since")
+    List<String> getSetsWithFreshRemoteRating(List<String> setNums, long since);
+
     /**
      * Проверить, оставил ли пользователь отзыв на набор
      */
@@ -108,6 +184,31 @@ public interface ReviewDao {
     @Query("UPDATE reviews SET is_synced = 1 WHERE review_id = :reviewId")
     void markAsSynced(long reviewId);
 
+    /**
+     * Пачка несинхронизированных отзывов после review_id (для очереди отправки)
+     */
+    @Query("SELECT * FROM reviews WHERE is_synced = 0 AND review_id > :afterId ORDER BY review_id LIMIT :limit")
+    List<ReviewEntity> getUnsyncedReviewsAfter(long afterId, int limit);
+
+    /**
+     * Назначить ключ идемпотентности отзыву, у которого его еще нет
+     */
+    @Query("UPDATE reviews SET client_id = :clientId WHERE review_id = :reviewId AND client_id IS NULL")
+    int assignClientId(long reviewId, String clientId);
+
+    /**
+     * Пометить отзыв синхронизированным, только если он не изменился после отправки
+     * @return 1, если строка помечена
+     */
+    @Query("UPDATE reviews SET is_synced = 1 WHERE review_id = :reviewId AND rating = :rating AND comment IS :comment")
+    int markAsSyncedIfUnchanged(long reviewId, float rating, String comment);
+
+    /**
+     * Удалить отзывы по списку ID
+     */
+    @Query("DELETE FROM reviews WHERE review_id IN (:reviewIds)")
+    void deleteByIds(List<Long> reviewIds);
+
     /**
      * Удалить отзывы для конкретного набора
      */
@@ -0,0 +1,115 @@
+package com.example.legokp.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+
+import com.example.legokp.database.CatalogText;
+
+/**
+ * Колонки lego_sets, которые приходят с сервера (все, кроме is_favorite).
+ * Используется для частичного @Update: локальный флаг избранного не перезаписывается.
+ */
+public class LegoSetCatalogFields {
+
+    @NonNull
+    @ColumnInfo(name = "set_num")
+    private final String setNum;
+
+    @ColumnInfo(name = "name")
+    private final String name;
+
+    @ColumnInfo(name = "name_fold")
+    private final String nameFold;
+
+    @ColumnInfo(name = "year")
+    private final int year;
+
+    @ColumnInfo(name = "theme")
+    private final String theme;
+
+    @ColumnInfo(name = "theme_fold")
+    private final String themeFold;
+
+    @ColumnInfo(name = "num_parts")
+    private final int numParts;
+
+    @ColumnInfo(name = "set_img_url")
+    private final String setImgUrl;
+
+    @ColumnInfo(name = "price")
+    private final double price;
+
+    @ColumnInfo(name = "rating")
+    private final double rating;
+
+    @ColumnInfo(name = "age_range")
+    private final String ageRange;
+
+    @ColumnInfo(name = "is_exclusive")
+    private final boolean isExclusive;
+
+    @ColumnInfo(name = "in_stock")
+    private final boolean inStock;
+
+    @ColumnInfo(name = "description")
+    private final String description;
+
+    @ColumnInfo(name = "last_updated")
+    private final long lastUpdated;
+
+    public LegoSetCatalogFields(@NonNull String setNum, String name, int year, String theme,
+                                int numParts, String setImgUrl, double price, double rating,
+                                String ageRange, boolean isExclusive, boolean inStock,
+                                String description, long lastUpdated) {
+        this.setNum = setNum;
+        this.name = name;
+        this.nameFold = CatalogText.fold(name);
+        this.year = year;
+        this.theme = theme;
+        this.themeFold = CatalogText.fold(theme);
+        this.numParts = numParts;
+        this.setImgUrl = setImgUrl;
+        this.price = price;
+        this.rating = rating;
+        this.ageRange = ageRange;
+        this.isExclusive = isExclusive;
+        this.inStock = inStock;
+        this.description = description;
+        this.lastUpdated = lastUpdated;
+    }
+
+    public static LegoSetCatalogFields from(LegoSetEntity entity) {
+        return new LegoSetCatalogFields(
+                entity.getSetNum(),
+                entity.getName(),
+                entity.getYear(),
+                entity.getTheme(),
+                entity.getNumParts(),
+                entity.getSetImgUrl(),
+                entity.getPrice(),
+                entity.getRating(),
+                entity.getAgeRange(),
+                entity.isExclusive(),
+                entity.isInStock(),
+                entity.getDescription(),
+                entity.getLastUpdated()
+        );
+    }
+
+    @NonNull
+    public String getSetNum() { return setNum; }
+    public String getName() { return name; }
+    public String getNameFold() { return nameFold; }
+    public int getYear() { return year; }
+    public String getTheme() { return theme; }
+    public String getThemeFold() { return themeFold; }
+    public int getNumParts() { return numParts; }
+    public String getSetImgUrl() { return setImgUrl; }
+    public double getPrice() { return price; }
+    public double getRating() { return rating; }
+    public String getAgeRange() { return ageRange; }
+    public boolean isExclusive() { return isExclusive; }
+    public boolean isInStock() { return inStock; }
+    public String getDescription() { return description; }
+    public long getLastUpdated() { return lastUpdated; }
+}
@@ -2,10 +2,15 @@ package com.example.legokp.database.entity;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.NonNull;
 
-@Entity(tableName = "lego_sets")
+import com.example.legokp.database.CatalogText;
+
+import java.util.Objects;
+
+@Entity(tableName = "lego_sets", indices = {@Index("name_fold"), @Index({"last_updated", "set_num"})})
 public class LegoSetEntity {
 
     @PrimaryKey
@@ -16,12 +21,19 @@ public class LegoSetEntity {
     @ColumnInfo(name = "name")
     private String name;
 
+    // name и theme со свернутым регистром (CatalogText.fold) для фильтрации и сортировки в SQLite
+    @ColumnInfo(name = "name_fold")
+    private String nameFold;
+
     @ColumnInfo(name = "year")
     private int year;
 
     @ColumnInfo(name = "theme")
     private String theme;
 
+    @ColumnInfo(name = "theme_fold")
+    private String themeFold;
+
     @ColumnInfo(name = "num_parts")
     private int numParts;
 
@@ -52,14 +64,24 @@ public class LegoSetEntity {
     @ColumnInfo(name = "last_updated")
     private long lastUpdated;
 
+    // ETag последнего ответа api/legosets/{setNum}, для условных запросов
+    @ColumnInfo(name = "etag")
+    private String etag;
+
+    // Last-Modified того же ответа как есть, для If-Modified-Since (время сервера, а не локальное last_updated)
+    @ColumnInfo(name = "last_modified")
+    private String lastModified;
+
     public LegoSetEntity(@NonNull String setNum, String name, int year, String theme,
                          int numParts, String setImgUrl, double price, double rating,
                          String ageRange, boolean isExclusive, boolean inStock,
                          boolean isFavorite, String description) {
         this.setNum = setNum;
         this.name = name;
+        this.nameFold = CatalogText.fold(name);
         this.year = year;
         this.theme = theme;
+        this.themeFold = CatalogText.fold(theme);
         this.numParts = numParts;
         this.setImgUrl = setImgUrl;
         this.price = price;
@@ -77,13 +99,25 @@ public class LegoSetEntity {
     public void setSetNum(@NonNull String setNum) { this.setNum = setNum; }
 
     public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
+    public void setName(String name) {
+        this.name = name;
+        this.nameFold = CatalogText.fold(name);
+    }
+
+    public String getNameFold() { return nameFold; }
+    public void setNameFold(String nameFold) { this.nameFold = nameFold; }
 
     public int getYear() { return year; }
     public void setYear(int year) { this.year = year; }
 
     public String getTheme() { return theme; }
-    public void setTheme(String theme) { this.theme = theme; }
+    public void setTheme(String theme) {
+        this.theme = theme;
+        this.themeFold = CatalogText.fold(theme);
+    }
+
+    public String getThemeFold() { return themeFold; }
+    public void setThemeFold(String themeFold) { this.themeFold = themeFold; }
 
     public int getNumParts() { return numParts; }
     public void setNumParts(int numParts) { this.numParts = numParts; }
@@ -114,4 +148,27 @@ public class LegoSetEntity {
 
     public long getLastUpdated() { return lastUpdated; }
     public void setLastUpdated(long lastUpdated) { this.lastUpdated = lastUpdated; }
-}
\ No newline at end of file
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    public String getLastModified() { return lastModified; }
+    public void setLastModified(String lastModified) { this.lastModified = lastModified; }
+
+    /**
+     * Совпадают ли серверные колонки (все, кроме is_favorite и last_updated)
+     */
+    public boolean hasSameCatalogData(LegoSetEntity other) {
+        return year == other.year
+                && numParts == other.numParts
+                && Double.compare(price, other.price) == 0
+                && Double.compare(rating, other.rating) == 0
+                && isExclusive == other.isExclusive
+                && inStock == other.inStock
+                && Objects.equals(name, other.name)
+                && Objects.equals(theme, other.theme)
+                && Objects.equals(setImgUrl, other.setImgUrl)
+                && Objects.equals(ageRange, other.ageRange)
+                && Objects.equals(description, other.description);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.legokp.database.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * Полнотекстовый индекс (FTS4) по названию, теме и описанию наборов.
+ * Хранит только индекс, сами данные остаются в lego_sets (contentEntity).
+ * Room сам создает триггеры, которые синхронизируют индекс при INSERT/UPDATE/DELETE в lego_sets.
+ * unicode61 сворачивает регистр не только для ASCII (simple не понимает кириллицу);
+ * диакритика сохраняется, чтобы поиск совпадал с CatalogText.fold.
+ */
+@Fts4(contentEntity = LegoSetEntity.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61,
+        tokenizerArgs = {"remove_diacritics=0"})
+@Entity(tableName = "lego_sets_fts")
+public class LegoSetFtsEntity {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private int rowId;
+
+    @ColumnInfo(name = "name")
+    private String name;
+
+    @ColumnInfo(name = "theme")
+    private String theme;
+
+    @ColumnInfo(name = "description")
+    private String description;
+
+    public int getRowId() { return rowId; }
+    public void setRowId(int rowId) { this.rowId = rowId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getTheme() { return theme; }
+    public void setTheme(String theme) { this.theme = theme; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+}
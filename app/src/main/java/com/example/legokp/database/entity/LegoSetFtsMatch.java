@@ -0,0 +1,34 @@
+package com.example.legokp.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+
+/**
+ * Совпадение в lego_sets_fts: номер набора, name_fold для порядка при равной релевантности
+ * и matchinfo(lego_sets_fts, 'pcx') для ранжирования (FtsQuery.rank)
+ */
+public class LegoSetFtsMatch {
+
+    @NonNull
+    @ColumnInfo(name = "set_num")
+    private final String setNum;
+
+    @ColumnInfo(name = "name_fold")
+    private final String nameFold;
+
+    @ColumnInfo(name = "match_info", typeAffinity = ColumnInfo.BLOB)
+    private final byte[] matchInfo;
+
+    public LegoSetFtsMatch(@NonNull String setNum, String nameFold, byte[] matchInfo) {
+        this.setNum = setNum;
+        this.nameFold = nameFold;
+        this.matchInfo = matchInfo;
+    }
+
+    @NonNull
+    public String getSetNum() { return setNum; }
+
+    public String getNameFold() { return nameFold; }
+
+    public byte[] getMatchInfo() { return matchInfo; }
+}
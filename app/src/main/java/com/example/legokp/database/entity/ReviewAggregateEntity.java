@@ -0,0 +1,112 @@
+package com.example.legokp.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Агрегаты отзывов по набору: количество, сумма, среднее и гистограмма оценок.
+ * Локальные колонки заполняют только триггеры на reviews (см. ReviewAggregateTriggers).
+ * Когда отзывов не остается, строка сохраняется с нулями.
+ * remote_* — рейтинг с сервера (по всем пользователям), их пишет RatingBatcher.
+ */
+@Entity(tableName = "review_aggregates")
+public class ReviewAggregateEntity {
+
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "set_num")
+    private String setNum;
+
+    @ColumnInfo(name = "review_count", defaultValue = "0")
+    private int reviewCount;
+
+    @ColumnInfo(name = "rating_sum", defaultValue = "0")
+    private double ratingSum;
+
+    @ColumnInfo(name = "average_rating", defaultValue = "0")
+    private double averageRating;
+
+    // Гистограмма: оценка округляется до целой звезды
+    @ColumnInfo(name = "star_1", defaultValue = "0")
+    private int star1;
+
+    @ColumnInfo(name = "star_2", defaultValue = "0")
+    private int star2;
+
+    @ColumnInfo(name = "star_3", defaultValue = "0")
+    private int star3;
+
+    @ColumnInfo(name = "star_4", defaultValue = "0")
+    private int star4;
+
+    @ColumnInfo(name = "star_5", defaultValue = "0")
+    private int star5;
+
+    @ColumnInfo(name = "remote_review_count", defaultValue = "0")
+    private int remoteReviewCount;
+
+    @ColumnInfo(name = "remote_average_rating", defaultValue = "0")
+    private double remoteAverageRating;
+
+    // Когда remote_* последний раз получены с сервера (0 — никогда)
+    @ColumnInfo(name = "remote_fetched_at", defaultValue = "0")
+    private long remoteFetchedAt;
+
+    public ReviewAggregateEntity(@NonNull String setNum) {
+        this.setNum = setNum;
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getSetNum() { return setNum; }
+    public void setSetNum(@NonNull String setNum) { this.setNum = setNum; }
+
+    public int getReviewCount() { return reviewCount; }
+    public void setReviewCount(int reviewCount) { this.reviewCount = reviewCount; }
+
+    public double getRatingSum() { return ratingSum; }
+    public void setRatingSum(double ratingSum) { this.ratingSum = ratingSum; }
+
+    public double getAverageRating() { return averageRating; }
+    public void setAverageRating(double averageRating) { this.averageRating = averageRating; }
+
+    public int getStar1() { return star1; }
+    public void setStar1(int star1) { this.star1 = star1; }
+
+    public int getStar2() { return star2; }
+    public void setStar2(int star2) { this.star2 = star2; }
+
+    public int getStar3() { return star3; }
+    public void setStar3(int star3) { this.star3 = star3; }
+
+    public int getStar4() { return star4; }
+    public void setStar4(int star4) { this.star4 = star4; }
+
+    public int getStar5() { return star5; }
+    public void setStar5(int star5) { this.star5 = star5; }
+
+    public int getRemoteReviewCount() { return remoteReviewCount; }
+    public void setRemoteReviewCount(int remoteReviewCount) { this.remoteReviewCount = remoteReviewCount; }
+
+    public double getRemoteAverageRating() { return remoteAverageRating; }
+    public void setRemoteAverageRating(double remoteAverageRating) { this.remoteAverageRating = remoteAverageRating; }
+
+    public long getRemoteFetchedAt() { return remoteFetchedAt; }
+    public void setRemoteFetchedAt(long remoteFetchedAt) { this.remoteFetchedAt = remoteFetchedAt; }
+
+    /**
+     * Количество отзывов с оценкой stars (1..5)
+     */
+    public int getStarCount(int stars) {
+        switch (stars) {
+            case 1: return star1;
+            case 2: return star2;
+            case 3: return star3;
+            case 4: return star4;
+            case 5: return star5;
+            default: return 0;
+        }
+    }
+}
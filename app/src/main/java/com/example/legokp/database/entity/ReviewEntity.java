@@ -19,7 +19,9 @@ import androidx.annotation.NonNull;
                 childColumns = "set_num",
                 onDelete = ForeignKey.CASCADE
         ),
-        indices = {@Index("set_num")}
+        // Составной индекс: страница отзывов набора по (created_at, review_id) — это проход по диапазону индекса.
+        // Префикс set_num заодно покрывает внешний ключ.
+        indices = {@Index(value = {"set_num", "created_at"})}
 )
 public class ReviewEntity {
 
@@ -54,6 +56,10 @@ public class ReviewEntity {
     @ColumnInfo(name = "is_synced")
     private boolean isSynced; // Синхронизирован с сервером
 
+    // Ключ идемпотентности для отправки; назначается очередью перед первой отправкой
+    @ColumnInfo(name = "client_id")
+    private String clientId;
+
     // Конструктор
     public ReviewEntity(@NonNull String setNum, @NonNull String userId,
                         @NonNull String username, float rating, String comment) {
@@ -133,4 +139,12 @@ public class ReviewEntity {
     public void setSynced(boolean synced) {
         isSynced = synced;
     }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.example.legokp.image;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.lifecycle.Transformations;
+
+import com.bumptech.glide.Glide;
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.LegoSetDao;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okio.ByteString;
+
+/**
+ * Закрепленные картинки избранных наборов: отдельный каталог в filesDir (система его не чистит, в отличие от кэша Glide),
+ * ограниченный MAX_STORE_BYTES.
+ * Следит за списком избранного в Room: новые избранные докачиваются, у снятых файлы удаляются.
+ * Скачивание идет через Glide (asFile), поэтому картинка, уже лежащая в кэше Glide, повторно не загружается.
+ * resolve() подменяет URL на локальный файл — избранное рисуется без сети.
+ */
+public class FavoriteImageStore {
+
+    private static final String TAG = "FavoriteImageStore";
+    private static final String DIR_NAME = "favorite_images";
+    private static final String FILE_SUFFIX = ".img";
+    static final long MAX_STORE_BYTES = 50L * 1024 * 1024; // 50 MB
+
+    private static volatile FavoriteImageStore INSTANCE;
+
+    private final Context appContext;
+    private final File directory;
+    private final LegoSetDao legoSetDao;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // url -> закрепленный файл; читается из UI-потока без обращения к диску
+    private final Map<String, File> pinned = new ConcurrentHashMap<>();
+    private final AtomicReference<List<String>> latestUrls = new AtomicReference<>();
+    private final AtomicBoolean syncScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    public static FavoriteImageStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (FavoriteImageStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new FavoriteImageStore(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private FavoriteImageStore(Context appContext) {
+        this.appContext = appContext;
+        this.directory = new File(appContext.getFilesDir(), DIR_NAME);
+        this.legoSetDao = AppDatabase.getDatabase(appContext).legoSetDao();
+    }
+
+    /**
+     * Начать следить за избранным. Вызывается из главного потока (LegoApplication), повторный вызов ничего не делает.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+        Transformations.distinctUntilChanged(legoSetDao.getFavoriteImageUrls())
+                .observeForever(this::scheduleSync);
+    }
+
+    /**
+     * Модель для Glide: локальный файл, если картинка закреплена, иначе сам URL
+     */
+    public Object resolve(String url) {
+        if (url == null) return null;
+        File file = pinned.get(url);
+        return file != null ? file : url;
+    }
+
+    // Частые изменения избранного схлопываются: синхронизируется последний известный список
+    private void scheduleSync(List<String> urls) {
+        latestUrls.set(urls);
+        if (syncScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                syncScheduled.set(false);
+                sync(latestUrls.get());
+            });
+        }
+    }
+
+    // Выполняется на executor
+    private void sync(List<String> urls) {
+        if (urls == null) return;
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + directory);
+            return;
+        }
+
+        Set<String> wanted = new LinkedHashSet<>(urls);
+        Set<String> wantedNames = new HashSet<>();
+        for (String url : wanted) {
+            wantedNames.add(fileNameFor(url));
+        }
+
+        // Сначала убрать из индекса, потом удалить файл: UI не получит ссылку на удаленный файл
+        pinned.keySet().retainAll(wanted);
+        long used = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (wantedNames.contains(file.getName())) {
+                    used += file.length();
+                } else if (!file.delete()) {
+                    Log.w(TAG, "Cannot delete " + file);
+                }
+            }
+        }
+
+        int added = 0;
+        for (String url : wanted) {
+            File target = new File(directory, fileNameFor(url));
+            if (target.exists()) {
+                pinned.put(url, target);
+                continue;
+            }
+            if (used >= MAX_STORE_BYTES) {
+                Log.w(TAG, "Store is full, " + url + " stays in the regular image cache");
+                continue;
+            }
+            try {
+                long size = download(url, target, MAX_STORE_BYTES - used);
+                if (size > 0) {
+                    used += size;
+                    pinned.put(url, target);
+                    added++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | IOException e) {
+                // Повторится при следующем изменении избранного или запуске
+                Log.w(TAG, "Failed to pin " + url + ": " + e);
+            }
+        }
+        Log.d(TAG, "Pinned " + pinned.size() + " favorite images (" + added + " new, " + used / 1024 + " KB)");
+    }
+
+    /**
+     * Скачать (или взять из кэша Glide) и скопировать в хранилище
+     * @return размер файла или 0, если он не помещается в остаток лимита
+     */
+    private long download(String url, File target, long remainingBytes)
+            throws ExecutionException, InterruptedException, IOException {
+        File source = Glide.with(appContext).asFile().load(url).submit().get();
+        if (source.length() > remainingBytes) {
+            Log.w(TAG, "No room for " + url + " (" + source.length() / 1024 + " KB)");
+            return 0;
+        }
+        File tmp = new File(directory, target.getName() + ".tmp");
+        try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Cannot move " + tmp + " to " + target);
+        }
+        return target.length();
+    }
+
+    private static String fileNameFor(String url) {
+        return ByteString.encodeUtf8(url).sha256().hex() + FILE_SUFFIX;
+    }
+}
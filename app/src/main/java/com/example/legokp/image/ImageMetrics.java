@@ -0,0 +1,185 @@
+package com.example.legokp.image;
+
+import android.graphics.drawable.BitmapDrawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.example.legokp.network.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики загрузки картинок Glide по экранам.
+ * На каждую загрузку вешается listener(screen): он фиксирует, откуда пришла картинка (DataSource:
+ * память, дисковый кэш результата, дисковый кэш исходника, сеть, локальный файл), время от запуска запроса
+ * до готового ресурса (для дисковых уровней это по сути время декодирования) и размер декодированного битмапа.
+ * snapshot() дает неизменяемую копию для экрана диагностики и для тестов.
+ */
+public final class ImageMetrics {
+
+    public static final String SCREEN_SETS = "sets";
+    public static final String SCREEN_FAVORITES = "favorites";
+    public static final String SCREEN_MINIFIGS = "minifigs";
+    public static final String SCREEN_SET_DETAIL = "set_detail";
+    public static final String SCREEN_SET_DETAIL_THUMBNAIL = "set_detail_thumbnail";
+
+    private static final Map<String, ScreenStats> SCREENS = new ConcurrentHashMap<>();
+
+    private ImageMetrics() {}
+
+    /**
+     * Listener для одной загрузки; время считается с момента вызова, поэтому создавать его прямо перед into()
+     */
+    public static <R> RequestListener<R> listener(String screen) {
+        return new MetricsListener<>(screen, System.nanoTime());
+    }
+
+    public static Snapshot snapshot() {
+        Map<String, ScreenStats> copy = new TreeMap<>();
+        for (Map.Entry<String, ScreenStats> entry : SCREENS.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return new Snapshot(copy);
+    }
+
+    public static void reset() {
+        SCREENS.clear();
+    }
+
+    private static ScreenStats stats(String screen) {
+        return SCREENS.computeIfAbsent(screen, key -> new ScreenStats());
+    }
+
+    private static class MetricsListener<R> implements RequestListener<R> {
+        private final String screen;
+        private final long startNanos;
+
+        MetricsListener(String screen, long startNanos) {
+            this.screen = screen;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public boolean onResourceReady(@NonNull R resource, @NonNull Object model, Target<R> target,
+                                       @NonNull DataSource dataSource, boolean isFirstResource) {
+            long bytes = resource instanceof BitmapDrawable && ((BitmapDrawable) resource).getBitmap() != null
+                    ? ((BitmapDrawable) resource).getBitmap().getAllocationByteCount() : 0;
+            stats(screen).recordLoad(dataSource, System.nanoTime() - startNanos, bytes);
+            return false;
+        }
+
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                    @NonNull Target<R> target, boolean isFirstResource) {
+            stats(screen).failures.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Накопленные метрики одного экрана
+     */
+    public static class ScreenStats {
+        private final LatencyHistogram[] loadTime = new LatencyHistogram[DataSource.values().length];
+        private final AtomicLong decodedBytes;
+        private final AtomicLong failures;
+
+        ScreenStats() {
+            this(null, 0, 0);
+        }
+
+        private ScreenStats(LatencyHistogram[] source, long decodedBytes, long failures) {
+            for (int i = 0; i < loadTime.length; i++) {
+                loadTime[i] = source != null ? source[i].copy() : new LatencyHistogram();
+            }
+            this.decodedBytes = new AtomicLong(decodedBytes);
+            this.failures = new AtomicLong(failures);
+        }
+
+        void recordLoad(DataSource source, long nanos, long bytes) {
+            loadTime[source.ordinal()].record(nanos);
+            decodedBytes.addAndGet(bytes);
+        }
+
+        ScreenStats copy() {
+            return new ScreenStats(loadTime, decodedBytes.get(), failures.get());
+        }
+
+        public LatencyHistogram getLoadTime(DataSource source) {
+            return loadTime[source.ordinal()];
+        }
+
+        public long getCount(DataSource source) {
+            return loadTime[source.ordinal()].getCount();
+        }
+
+        public long getTotalLoads() {
+            long total = 0;
+            for (LatencyHistogram histogram : loadTime) {
+                total += histogram.getCount();
+            }
+            return total;
+        }
+
+        /**
+         * Доля загрузок без сети и без декодирования (память)
+         */
+        public double getMemoryHitRatio() {
+            long total = getTotalLoads();
+            return total == 0 ? 0 : (double) getCount(DataSource.MEMORY_CACHE) / total;
+        }
+
+        public long getDecodedBytes() {
+            return decodedBytes.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+    }
+
+    /**
+     * Неизменяемый снимок по всем экранам (отсортирован по имени экрана)
+     */
+    public static class Snapshot {
+        public final Map<String, ScreenStats> screens;
+
+        Snapshot(Map<String, ScreenStats> screens) {
+            this.screens = Collections.unmodifiableMap(screens);
+        }
+
+        public ScreenStats get(String screen) {
+            return screens.get(screen);
+        }
+
+        /**
+         * Текстовый дамп для экрана диагностики и логов
+         */
+        public String dump() {
+            StringBuilder out = new StringBuilder();
+            for (Map.Entry<String, ScreenStats> entry : screens.entrySet()) {
+                ScreenStats stats = entry.getValue();
+                out.append(entry.getKey()).append('\n')
+                        .append(String.format(Locale.US, "  loads=%d failed=%d memory hit=%.0f%% decoded=%dKB%n",
+                                stats.getTotalLoads(), stats.getFailures(), stats.getMemoryHitRatio() * 100,
+                                stats.getDecodedBytes() / 1024));
+                for (DataSource source : DataSource.values()) {
+                    if (stats.getCount(source) == 0) continue;
+                    out.append(String.format(Locale.US, "  %-19s ", source.name().toLowerCase(Locale.US)))
+                            .append(stats.getLoadTime(source)).append('\n');
+                }
+            }
+            return out.length() == 0 ? "No image loads recorded" : out.toString();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.legokp.image;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
+import com.example.legokp.R;
+import com.example.legokp.utils.Constants;
+
+/**
+ * Готовые RequestOptions для картинок по месту показа.
+ * Миниатюры декодируются сразу в размер ячейки (override) и в RGB_565 — вдвое меньше памяти, чем ARGB_8888;
+ * картинки с прозрачностью Glide все равно декодирует в ARGB_8888.
+ * Hardware-битмапы для миниатюр выключены: они всегда ARGB_8888 и не попадают в пул,
+ * а миниатюрам нужен как раз пул (одинаковый размер у всех ячеек).
+ * Детальный экран грузится в полном качестве; пока идет полное декодирование, показывается
+ * миниатюра из сетки (cachedGridThumbnail), а исходные данные берутся из дискового кэша, без второй загрузки.
+ * Размер ячейки считается от ширины экрана, поэтому options создаются заново при смене конфигурации
+ * (адаптер берет их один раз при создании).
+ */
+public final class ImageRequests {
+
+    private ImageRequests() {}
+
+    /**
+     * Миниатюра для карточки в сетке наборов (item_lego_set)
+     */
+    public static RequestOptions gridThumbnail(Context context) {
+        Resources res = context.getResources();
+        int gridPadding = res.getDimensionPixelSize(R.dimen.grid_padding);
+        int cardMargin = res.getDimensionPixelSize(R.dimen.grid_card_margin);
+        int width = (res.getDisplayMetrics().widthPixels - 2 * gridPadding) / Constants.GRID_SPAN_COUNT
+                - 2 * cardMargin;
+        int height = res.getDimensionPixelSize(R.dimen.grid_image_height);
+        return thumbnail(Math.max(1, width), height);
+    }
+
+    /**
+     * Та же миниатюра сетки, но только из кэша (память или диск) — для мгновенного первого кадра
+     * на детальном экране. Ключ кэша совпадает с gridThumbnail, если ширина экрана та же.
+     */
+    public static RequestOptions cachedGridThumbnail(Context context) {
+        return gridThumbnail(context).onlyRetrieveFromCache(true);
+    }
+
+    /**
+     * Миниатюра минифигурки (item_minifig)
+     */
+    public static RequestOptions minifigThumbnail(Context context) {
+        int size = context.getResources().getDimensionPixelSize(R.dimen.minifig_image_size);
+        return thumbnail(size, size);
+    }
+
+    /**
+     * Полное качество для детального экрана
+     */
+    public static RequestOptions detail() {
+        return new RequestOptions()
+                .format(DecodeFormat.PREFER_ARGB_8888)
+                .placeholder(R.drawable.ic_lego_placeholder)
+                .error(R.drawable.ic_lego_placeholder);
+    }
+
+    private static RequestOptions thumbnail(int width, int height) {
+        return new RequestOptions()
+                .override(width, height)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .disallowHardwareConfig()
+                .placeholder(R.drawable.ic_lego_placeholder)
+                .error(R.drawable.ic_lego_placeholder);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.legokp.image;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.example.legokp.BuildConfig;
+
+/**
+ * Настройки Glide для приложения.
+ * Память: кэш на два экрана и пул битмапов на три — при быстрой прокрутке сетки
+ * миниатюры одного размера (ImageRequests.gridThumbnail) переиспользуют битмапы из пула, а не выделяют новые.
+ * Диск: отдельный каталог image_cache в cacheDir, DISK_CACHE_SIZE.
+ */
+@GlideModule
+public final class LegoGlideModule extends AppGlideModule {
+
+    private static final String DISK_CACHE_DIR = "image_cache";
+    private static final long DISK_CACHE_SIZE = 100L * 1024 * 1024; // 100 MB
+
+    private static final float MEMORY_CACHE_SCREENS = 2;
+    private static final float BITMAP_POOL_SCREENS = 3;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        builder.setMemorySizeCalculator(new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .setBitmapPoolScreens(BITMAP_POOL_SCREENS));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR, DISK_CACHE_SIZE));
+        if (BuildConfig.DEBUG) {
+            builder.setLogLevel(Log.DEBUG);
+        }
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        // Модулей в манифесте нет, сканировать его при старте незачем
+        return false;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.legokp.image;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.example.legokp.adapter.LegoSetAdapter;
+import com.example.legokp.models.LegoSet;
+import com.example.legokp.utils.Constants;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Предзагрузка миниатюр сетки наборов на PRELOAD_ROWS рядов вперед по направлению прокрутки.
+ * RecyclerViewPreloader держит не больше maxPreload целей одновременно: при смещении окна
+ * старые цели переиспользуются, и их запросы отменяются — это и есть ограничение параллельных загрузок.
+ * Предзагрузка запускается только событиями прокрутки, в покое сеть не используется.
+ * Элементы берутся через peek, поэтому предзагрузка не заставляет Paging грузить новые страницы.
+ */
+public final class SetThumbnailPreloader implements ListPreloader.PreloadModelProvider<LegoSet> {
+
+    public static final int PRELOAD_ROWS = 3;
+
+    private final LegoSetAdapter adapter;
+
+    private SetThumbnailPreloader(LegoSetAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Подключить предзагрузку к RecyclerView с сеткой наборов
+     */
+    public static RecyclerViewPreloader<LegoSet> attach(RecyclerView recyclerView, LegoSetAdapter adapter) {
+        RequestOptions options = adapter.getThumbnailOptions();
+        RecyclerViewPreloader<LegoSet> preloader = new RecyclerViewPreloader<>(
+                adapter.getRequestManager(),
+                new SetThumbnailPreloader(adapter),
+                new FixedPreloadSizeProvider<>(options.getOverrideWidth(), options.getOverrideHeight()),
+                PRELOAD_ROWS * Constants.GRID_SPAN_COUNT);
+        recyclerView.addOnScrollListener(preloader);
+        return preloader;
+    }
+
+    @NonNull
+    @Override
+    public List<LegoSet> getPreloadItems(int position) {
+        if (position < 0 || position >= adapter.getItemCount()) {
+            return Collections.emptyList();
+        }
+        LegoSet set = adapter.peek(position);
+        if (set == null || TextUtils.isEmpty(set.getSetImgUrl())) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(set);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull LegoSet set) {
+        return adapter.thumbnailRequest(set.getSetImgUrl());
+    }
+}
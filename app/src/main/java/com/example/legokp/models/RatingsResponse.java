@@ -0,0 +1,22 @@
+package com.example.legokp.models;
+
+import java.util.List;
+
+/**
+ * Ответ API со средними рейтингами нескольких наборов
+ */
+public class RatingsResponse {
+    private boolean success;
+    private String message;
+    private List<SetRating> ratings;
+
+    // Getters and Setters
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public List<SetRating> getRatings() { return ratings; }
+    public void setRatings(List<SetRating> ratings) { this.ratings = ratings; }
+}
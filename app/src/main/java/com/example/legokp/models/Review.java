@@ -31,6 +31,10 @@ public class Review {
     @SerializedName("is_synced")
     private boolean isSynced;
 
+    // Ключ идемпотентности: повторная отправка того же client_id не создает второй отзыв
+    @SerializedName("client_id")
+    private String clientId;
+
     // Конструкторы
     public Review() {
     }
@@ -108,4 +112,12 @@ public class Review {
     public void setSynced(boolean synced) {
         isSynced = synced;
     }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
 }
\ No newline at end of file
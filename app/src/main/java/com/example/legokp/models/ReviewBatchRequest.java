@@ -0,0 +1,18 @@
+package com.example.legokp.models;
+
+import java.util.List;
+
+/**
+ * Тело пакетной отправки отзывов (api/reviews/batch)
+ */
+public class ReviewBatchRequest {
+    private List<Review> reviews;
+
+    public ReviewBatchRequest(List<Review> reviews) {
+        this.reviews = reviews;
+    }
+
+    // Getters and Setters
+    public List<Review> getReviews() { return reviews; }
+    public void setReviews(List<Review> reviews) { this.reviews = reviews; }
+}
@@ -0,0 +1,22 @@
+package com.example.legokp.models;
+
+import java.util.List;
+
+/**
+ * Ответ API на пакетную отправку отзывов: результат по каждому client_id
+ */
+public class ReviewBatchResponse {
+    private boolean success;
+    private String message;
+    private List<ReviewSubmitResult> results;
+
+    // Getters and Setters
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public List<ReviewSubmitResult> getResults() { return results; }
+    public void setResults(List<ReviewSubmitResult> results) { this.results = results; }
+}
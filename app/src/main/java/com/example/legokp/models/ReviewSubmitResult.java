@@ -0,0 +1,37 @@
+package com.example.legokp.models;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Результат отправки одного отзыва из пакета.
+ * Повторно отправленный client_id сервер не создает заново, а возвращает прежний результат.
+ */
+public class ReviewSubmitResult {
+
+    @SerializedName("client_id")
+    private String clientId;
+
+    @SerializedName("review_id")
+    private long reviewId;
+
+    @SerializedName("success")
+    private boolean success;
+
+    @SerializedName("message")
+    private String message;
+
+    public ReviewSubmitResult() {}
+
+    // Getters and Setters
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
+
+    public long getReviewId() { return reviewId; }
+    public void setReviewId(long reviewId) { this.reviewId = reviewId; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
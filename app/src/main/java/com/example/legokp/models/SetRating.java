@@ -0,0 +1,30 @@
+package com.example.legokp.models;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Средний рейтинг одного набора из пакетного ответа api/reviews/ratings
+ */
+public class SetRating {
+
+    @SerializedName("set_num")
+    private String setNum;
+
+    @SerializedName("average_rating")
+    private float averageRating;
+
+    @SerializedName("count")
+    private int count;
+
+    public SetRating() {}
+
+    // Getters and Setters
+    public String getSetNum() { return setNum; }
+    public void setSetNum(String setNum) { this.setNum = setNum; }
+
+    public float getAverageRating() { return averageRating; }
+    public void setAverageRating(float averageRating) { this.averageRating = averageRating; }
+
+    public int getCount() { return count; }
+    public void setCount(int count) { this.count = count; }
+}
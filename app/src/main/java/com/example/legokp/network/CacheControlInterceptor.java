@@ -0,0 +1,104 @@
+package com.example.legokp.network;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Network interceptor: проставляет Cache-Control ответам GET по правилам для эндпоинтов,
+ * чтобы OkHttp Cache мог отдавать их с диска без сети в пределах max-age.
+ * Ответы, которые сервер сам пометил no-store/private, не трогаются.
+ * Успешная запись (POST/PUT/DELETE) удаляет из кэша GET-ответы того же раздела,
+ * иначе, например, только что отправленный отзыв пропал бы из закэшированного списка.
+ */
+public class CacheControlInterceptor implements Interceptor {
+
+    // Сколько можно отдавать устаревший ответ при ошибке сети или без сети (см. OfflineCacheInterceptor)
+    public static final int STALE_IF_ERROR_SECONDS = (int) TimeUnit.DAYS.toSeconds(7);
+
+    /**
+     * Правило кэширования: префикс пути и max-age в секундах.
+     * Порядок важен — первое совпадение выигрывает.
+     */
+    private static final String[] PATH_PREFIXES = {
+            "/lego/themes",
+            "/lego/minifigs",
+            "/api/legosets",
+            "/api/reviews"
+    };
+    private static final int[] MAX_AGE_SECONDS = {
+            (int) TimeUnit.HOURS.toSeconds(24), // темы меняются редко
+            (int) TimeUnit.HOURS.toSeconds(1),
+            (int) TimeUnit.MINUTES.toSeconds(5),
+            (int) TimeUnit.MINUTES.toSeconds(1)  // отзывы — короткий TTL
+    };
+
+    private final Cache cache;
+
+    public CacheControlInterceptor(Cache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        if (!response.isSuccessful()) {
+            return response;
+        }
+        if (!"GET".equals(request.method())) {
+            evictSection(request.url().encodedPath());
+            return response;
+        }
+        String serverCacheControl = response.header("Cache-Control");
+        if (serverCacheControl != null
+                && (serverCacheControl.contains("no-store") || serverCacheControl.contains("private"))) {
+            return response;
+        }
+
+        int maxAge = maxAgeFor(request.url().encodedPath());
+        if (maxAge <= 0) {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "public, max-age=" + maxAge
+                        + ", stale-if-error=" + STALE_IF_ERROR_SECONDS)
+                .build();
+    }
+
+    private void evictSection(String path) {
+        String section = sectionOf(path);
+        if (section == null) return;
+        Iterator<String> urls = cache.urls();
+        while (urls.hasNext()) {
+            HttpUrl url = HttpUrl.parse(urls.next());
+            if (url != null && url.encodedPath().startsWith(section)) {
+                urls.remove();
+            }
+        }
+    }
+
+    private static String sectionOf(String path) {
+        for (String prefix : PATH_PREFIXES) {
+            if (path.startsWith(prefix)) return prefix;
+        }
+        return null;
+    }
+
+    static int maxAgeFor(String path) {
+        for (int i = 0; i < PATH_PREFIXES.length; i++) {
+            if (path.startsWith(PATH_PREFIXES[i])) {
+                return MAX_AGE_SECONDS[i];
+            }
+        }
+        return 0;
+    }
+}
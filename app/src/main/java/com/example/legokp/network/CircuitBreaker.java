@@ -0,0 +1,75 @@
+package com.example.legokp.network;
+
+/**
+ * Автомат состояний для одного хоста: CLOSED -> OPEN после FAILURE_THRESHOLD подряд неудачных попыток,
+ * через OPEN_MILLIS — HALF_OPEN с одной пробной попыткой. Удачная проба закрывает автомат, неудачная открывает снова.
+ */
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final long OPEN_MILLIS = 30_000;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    /**
+     * Можно ли отправить попытку сейчас. В HALF_OPEN пропускается только одна проба.
+     */
+    synchronized boolean allowRequest(long now) {
+        switch (state) {
+            case OPEN:
+                if (now - openedAt < OPEN_MILLIS) return false;
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    /**
+     * @return true, если этот отказ открыл автомат
+     */
+    synchronized boolean onFailure(long now) {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD)) {
+            state = State.OPEN;
+            openedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Вызов отменен или ответ пришел из кэша: о здоровье хоста ничего не известно, пробу можно повторить
+     */
+    synchronized void onCancelled() {
+        probeInFlight = false;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Сколько осталось до пробной попытки (0, если автомат не открыт)
+     */
+    synchronized long remainingOpenMillis(long now) {
+        return state == State.OPEN ? Math.max(0, OPEN_MILLIS - (now - openedAt)) : 0;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.legokp.network;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Invocation;
+import retrofit2.http.Streaming;
+
+/**
+ * Single-flight для одинаковых GET-запросов эндпоинтов, которые включили его заголовком X-Coalesce
+ * (COALESCE в @Headers метода API). Остальные запросы проходят без изменений.
+ * Если такой же запрос (URL + Authorization + Accept + условные заголовки) уже выполняется, новый вызов
+ * не идет в сеть, а ждет результат первого. Все вызывающие получают одинаковый ответ (тело буферизуется в памяти).
+ * Тело больше maxSharedBytes не буферизуется: ведущий получает ответ как есть, ожидающие выполняют запрос сами.
+ * Если первый вызов отменен, ошибку получает только он: ожидающие повторяют запрос сами.
+ * Ожидающий ждет не дольше собственного callTimeout, а без него — худшего случая ведущего
+ * со всеми повторами ResilienceInterceptor (ResilienceInterceptor.maxCallMillis).
+ *
+ * Дополнительно ответ можно запомнить на короткое время: заголовок X-Memo-Ttl (мс) в @Headers метода API
+ * (включает и single-flight). Служебные заголовки на сервер не отправляются. Запросы с @Streaming не объединяются.
+ */
+public class CoalescingInterceptor implements Interceptor {
+
+    public static final String HEADER_COALESCE = "X-Coalesce";
+    public static final String HEADER_MEMO_TTL = "X-Memo-Ttl";
+    public static final String COALESCE = HEADER_COALESCE + ": true";
+
+    // Ответы отзывов, рейтингов и минифигурок помещаются с запасом; страницы каталога сюда не попадают
+    static final long DEFAULT_MAX_SHARED_BYTES = 512 * 1024;
+
+    private final long maxSharedBytes;
+    private final Object lock = new Object();
+    private final Map<String, CompletableFuture<SharedResponse>> inFlight = new HashMap<>();
+    private final Map<String, SharedResponse> memos = new HashMap<>();
+
+    public CoalescingInterceptor() {
+        this(DEFAULT_MAX_SHARED_BYTES);
+    }
+
+    CoalescingInterceptor(long maxSharedBytes) {
+        this.maxSharedBytes = maxSharedBytes;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long memoTtl = parseTtl(request.header(HEADER_MEMO_TTL));
+        boolean optedIn = memoTtl > 0 || "true".equalsIgnoreCase(request.header(HEADER_COALESCE));
+        if (request.header(HEADER_MEMO_TTL) != null || request.header(HEADER_COALESCE) != null) {
+            request = request.newBuilder().removeHeader(HEADER_MEMO_TTL).removeHeader(HEADER_COALESCE).build();
+        }
+        if (!optedIn || !"GET".equals(request.method()) || isStreaming(request)) {
+            return chain.proceed(request);
+        }
+
+        String key = keyFor(request);
+        while (true) {
+            CompletableFuture<SharedResponse> flight;
+            boolean leader = false;
+            synchronized (lock) {
+                SharedResponse memo = memos.get(key);
+                if (memo != null) {
+                    if (memo.expiresAt > System.currentTimeMillis()) {
+                        return memo.toResponse(request);
+                    }
+                    memos.remove(key);
+                }
+                flight = inFlight.get(key);
+                if (flight == null) {
+                    flight = new CompletableFuture<>();
+                    inFlight.put(key, flight);
+                    leader = true;
+                }
+            }
+
+            if (leader) {
+                return lead(chain, request, key, memoTtl, flight);
+            }
+            try {
+                return await(chain, flight).toResponse(request);
+            } catch (LeaderCancelledException e) {
+                // Отменили чужой вызов, а не этот: повторяем (станем ведущим или присоединимся к новому)
+                if (chain.call().isCanceled()) {
+                    throw new IOException("Canceled");
+                }
+            } catch (NotShareableException e) {
+                // Тело слишком большое для общего буфера: каждый читает свой ответ
+                return chain.proceed(request);
+            }
+        }
+    }
+
+    private Response lead(Chain chain, Request request, String key, long memoTtl,
+                          CompletableFuture<SharedResponse> flight) throws IOException {
+        try {
+            Response response = chain.proceed(request);
+            if (!fitsInMemory(response)) {
+                synchronized (lock) {
+                    inFlight.remove(key);
+                }
+                flight.completeExceptionally(new NotShareableException());
+                return response;
+            }
+            SharedResponse shared;
+            try {
+                long expiresAt = memoTtl > 0 && response.isSuccessful()
+                        ? System.currentTimeMillis() + memoTtl : 0;
+                shared = SharedResponse.from(response, expiresAt);
+            } finally {
+                response.close();
+            }
+            synchronized (lock) {
+                if (shared.expiresAt > 0) {
+                    memos.put(key, shared);
+                }
+                inFlight.remove(key);
+            }
+            flight.complete(shared);
+            return shared.toResponse(request);
+        } catch (IOException | RuntimeException e) {
+            synchronized (lock) {
+                inFlight.remove(key);
+            }
+            flight.completeExceptionally(chain.call().isCanceled() ? new LeaderCancelledException() : e);
+            throw e;
+        }
+    }
+
+    /**
+     * Поместится ли тело в общий буфер. Без Content-Length читается не больше maxSharedBytes + 1 байт:
+     * если тело длиннее, прочитанное остается в буфере источника и ответ читается дальше как обычно.
+     */
+    private boolean fitsInMemory(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) return true;
+        long length = body.contentLength();
+        if (length >= 0) return length <= maxSharedBytes;
+        return !body.source().request(maxSharedBytes + 1);
+    }
+
+    private static SharedResponse await(Chain chain, CompletableFuture<SharedResponse> flight) throws IOException {
+        long timeout = waitBudgetMillis(chain);
+        try {
+            return timeout > 0 ? flight.get(timeout, TimeUnit.MILLISECONDS) : flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for shared call");
+        } catch (TimeoutException e) {
+            throw new InterruptedIOException("Timed out waiting for shared call");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof LeaderCancelledException) {
+                throw (LeaderCancelledException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            throw new IOException("Shared call failed", cause);
+        }
+    }
+
+    /**
+     * Сколько ожидающий ждет ведущего (0 — без ограничения).
+     * callTimeout ограничивает весь вызов, поэтому ждать дольше него бессмысленно. Без него ведущий может
+     * занять все попытки ResilienceInterceptor с таймаутами и задержками, а таймаутов одной попытки мало.
+     */
+    static long waitBudgetMillis(Chain chain) {
+        long callTimeout = TimeUnit.NANOSECONDS.toMillis(chain.call().timeout().timeoutNanos());
+        if (callTimeout > 0) return callTimeout;
+        return ResilienceInterceptor.maxCallMillis(chain.connectTimeoutMillis(), chain.writeTimeoutMillis(),
+                chain.readTimeoutMillis());
+    }
+
+    /**
+     * @Streaming-ответы не буферизуем: их читают потоково, тело может быть очень большим
+     */
+    private static boolean isStreaming(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        return invocation != null && invocation.method().isAnnotationPresent(Streaming.class);
+    }
+
+    private static String keyFor(Request request) {
+        return request.url() + "|" + request.header("Authorization") + "|" + request.header("Accept")
+                + "|" + request.header("If-None-Match") + "|" + request.header("If-Modified-Since");
+    }
+
+    private static long parseTtl(String value) {
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Ведущий вызов отменен вызывающим; ожидающим это не ошибка, а повод повторить запрос
+     */
+    private static class LeaderCancelledException extends IOException {
+        LeaderCancelledException() {
+            super("Shared call was cancelled by its caller");
+        }
+    }
+
+    /**
+     * Ответ ведущего слишком большой, чтобы держать его в памяти для всех
+     */
+    private static class NotShareableException extends IOException {
+        NotShareableException() {
+            super("Shared response is too large to buffer");
+        }
+    }
+
+    /**
+     * Полностью прочитанный ответ, из которого можно собрать новый Response для каждого вызывающего
+     */
+    private static class SharedResponse {
+        final Protocol protocol;
+        final int code;
+        final String message;
+        final Headers headers;
+        final MediaType contentType;
+        final byte[] body;
+        final long expiresAt;
+
+        private SharedResponse(Protocol protocol, int code, String message, Headers headers,
+                               MediaType contentType, byte[] body, long expiresAt) {
+            this.protocol = protocol;
+            this.code = code;
+            this.message = message;
+            this.headers = headers;
+            this.contentType = contentType;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        static SharedResponse from(Response response, long expiresAt) throws IOException {
+            ResponseBody body = response.body();
+            MediaType contentType = body != null ? body.contentType() : null;
+            byte[] bytes = body != null ? body.bytes() : new byte[0];
+            return new SharedResponse(response.protocol(), response.code(), response.message(),
+                    response.headers(), contentType, bytes, expiresAt);
+        }
+
+        Response toResponse(Request request) {
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(protocol)
+                    .code(code)
+                    .message(message)
+                    .headers(headers)
+                    .body(ResponseBody.create(body, contentType))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.legokp.network;
+
+import java.util.Locale;
+
+/**
+ * Снимок счетчиков HTTP-кэша
+ */
+public class HttpCacheStats {
+    public final int requestCount;   // все запросы через кэш
+    public final int hitCount;       // ответ отдан из кэша (в т.ч. после 304)
+    public final int networkCount;   // запрос ушел в сеть
+    public final long staleServed;   // устаревший ответ вместо ошибки или без сети
+    public final long sizeBytes;
+
+    public HttpCacheStats(int requestCount, int hitCount, int networkCount, long staleServed, long sizeBytes) {
+        this.requestCount = requestCount;
+        this.hitCount = hitCount;
+        this.networkCount = networkCount;
+        this.staleServed = staleServed;
+        this.sizeBytes = sizeBytes;
+    }
+
+    public int getMissCount() {
+        return Math.max(0, requestCount - hitCount);
+    }
+
+    public float getHitRatio() {
+        return requestCount == 0 ? 0f : (float) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "requests=%d hits=%d misses=%d network=%d stale=%d size=%dKB (hit %.0f%%)",
+                requestCount, hitCount, getMissCount(), networkCount, staleServed, sizeBytes / 1024,
+                getHitRatio() * 100);
+    }
+}
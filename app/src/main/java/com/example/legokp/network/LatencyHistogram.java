@@ -0,0 +1,74 @@
+package com.example.legokp.network;
+
+import java.util.Locale;
+
+/**
+ * Гистограмма задержек с фиксированными границами корзин (мс).
+ * Перцентили приблизительные: возвращается верхняя граница корзины (для последней — максимум).
+ */
+public class LatencyHistogram {
+
+    static final long[] BUCKET_BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+    private long count;
+    private long sumNanos;
+    private long maxNanos;
+
+    public synchronized void record(long nanos) {
+        if (nanos < 0) return;
+        long ms = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && ms > BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        sumNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public synchronized LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.count = count;
+        copy.sumNanos = sumNanos;
+        copy.maxNanos = maxNanos;
+        return copy;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMs() {
+        return count == 0 ? 0 : sumNanos / 1e6 / count;
+    }
+
+    public synchronized double getMaxMs() {
+        return maxNanos / 1e6;
+    }
+
+    /**
+     * @param percentile от 0 до 100
+     */
+    public synchronized double getPercentileMs(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_MS.length ? Math.min(BUCKET_BOUNDS_MS[i], getMaxMs()) : getMaxMs();
+            }
+        }
+        return getMaxMs();
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (count == 0) return "-";
+        return String.format(Locale.US, "n=%d avg=%.0f p50<=%.0f p95<=%.0f max=%.0f ms",
+                count, getMeanMs(), getPercentileMs(50), getPercentileMs(95), getMaxMs());
+    }
+}
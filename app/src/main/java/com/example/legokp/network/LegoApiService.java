@@ -4,20 +4,29 @@ import com.example.legokp.models.AuthRequest;
 import com.example.legokp.models.AuthResponse;
 import com.example.legokp.models.FavoriteRequest;
 import com.example.legokp.models.FavoriteResponse;
+import com.example.legokp.models.LegoSet;
 import com.example.legokp.models.LegoSetResponse;
 import com.example.legokp.models.MinifigResponse;
+import com.example.legokp.models.RatingsResponse;
 import com.example.legokp.models.Review;
+import com.example.legokp.models.ReviewBatchRequest;
+import com.example.legokp.models.ReviewBatchResponse;
 import com.example.legokp.models.ReviewResponse;
 import com.example.legokp.models.ThemeResponse;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
+import retrofit2.http.Url;
 
 /**
  * API сервис для всех запросов к серверу
@@ -58,6 +67,7 @@ public interface LegoApiService {
      * @param search Поисковый запрос (необязательно)
      * @return LegoSetResponse со списком наборов
      */
+    @Headers(WireFormat.ACCEPT_CBOR_OR_JSON)
     @GET("api/legosets")
     Call<LegoSetResponse> getLegoSets(
             @Query("page") int page,
@@ -67,10 +77,51 @@ public interface LegoApiService {
             @Query("search") String search
     );
 
+    /**
+     * То же, что getLegoSets, но тело не разбирается целиком: его читает LegoSetStreamReader
+     * @return сырое тело LegoSetResponse (закрыть после чтения)
+     */
+    @Headers(WireFormat.ACCEPT_CBOR_OR_JSON)
+    @Streaming
+    @GET("api/legosets")
+    Call<ResponseBody> streamLegoSets(
+            @Query("page") int page,
+            @Query("pageSize") int pageSize,
+            @Query("theme") String theme,
+            @Query("year") Integer year,
+            @Query("search") String search
+    );
+
+    /**
+     * Получить один набор с условным запросом
+     * @param setNum Номер набора
+     * @param ifNoneMatch ETag из прошлого ответа (необязательно)
+     * @param ifModifiedSince Last-Modified из прошлого ответа, без изменений (необязательно)
+     * @return LegoSet или 304 Not Modified без тела
+     */
+    @Headers(CoalescingInterceptor.COALESCE)
+    @GET("api/legosets/{setNum}")
+    Call<LegoSet> getLegoSet(
+            @Path("setNum") String setNum,
+            @Header("If-None-Match") String ifNoneMatch,
+            @Header("If-Modified-Since") String ifModifiedSince
+    );
+
+    /**
+     * Получить страницу наборов по абсолютной ссылке из LegoSetResponse.next (потоково)
+     * @param url Значение поля next предыдущей страницы
+     * @return сырое тело LegoSetResponse (закрыть после чтения)
+     */
+    @Headers(WireFormat.ACCEPT_CBOR_OR_JSON)
+    @Streaming
+    @GET
+    Call<ResponseBody> streamLegoSetsByUrl(@Url String url);
+
     /**
      * Получить список всех тем/категорий LEGO
      * @return ThemeResponse со списком тем
      */
+    @Headers(CoalescingInterceptor.HEADER_MEMO_TTL + ": 30000")
     @GET("lego/themes")
     Call<ThemeResponse> getThemes();
 
@@ -94,6 +145,7 @@ public interface LegoApiService {
      * Получить список минифигурок
      * @return MinifigResponse со списком минифигурок
      */
+    @Headers({WireFormat.ACCEPT_CBOR_OR_JSON, CoalescingInterceptor.COALESCE})
     @GET("lego/minifigs/")
     Call<MinifigResponse> getMinifigs();
 
@@ -106,9 +158,27 @@ public interface LegoApiService {
      * @param setNum Номер набора (например: "21333-1")
      * @return ReviewResponse со списком отзывов и средним рейтингом
      */
+    @Headers({WireFormat.ACCEPT_CBOR_OR_JSON, CoalescingInterceptor.COALESCE})
     @GET("api/reviews/{setNum}")
     Call<ReviewResponse> getReviews(@Path("setNum") String setNum);
 
+    /**
+     * Получить страницу отзывов набора (новые сверху), keyset по (created_at, review_id)
+     * @param setNum Номер набора
+     * @param limit Размер страницы
+     * @param beforeCreatedAt created_at последнего отзыва предыдущей страницы (null для первой)
+     * @param beforeId review_id последнего отзыва предыдущей страницы (null для первой)
+     * @return ReviewResponse со страницей отзывов
+     */
+    @Headers({WireFormat.ACCEPT_CBOR_OR_JSON, CoalescingInterceptor.COALESCE})
+    @GET("api/reviews/{setNum}")
+    Call<ReviewResponse> getReviewsPage(
+            @Path("setNum") String setNum,
+            @Query("limit") int limit,
+            @Query("before_created_at") Long beforeCreatedAt,
+            @Query("before_id") Long beforeId
+    );
+
     /**
      * Добавить новый отзыв
      * @param review Объект отзыва (set_num, user_id, username, rating, comment)
@@ -117,6 +187,15 @@ public interface LegoApiService {
     @POST("api/reviews")
     Call<ReviewResponse> submitReview(@Body Review review);
 
+    /**
+     * Добавить несколько отзывов одним запросом.
+     * Сервер различает отзывы по client_id, поэтому повтор всего пакета после сбоя ничего не дублирует.
+     * @param request Отзывы с client_id
+     * @return ReviewBatchResponse с результатом по каждому client_id
+     */
+    @POST("api/reviews/batch")
+    Call<ReviewBatchResponse> submitReviews(@Body ReviewBatchRequest request);
+
     /**
      * Обновить существующий отзыв
      * @param reviewId ID отзыва
@@ -142,9 +221,19 @@ public interface LegoApiService {
      * @param setNum Номер набора
      * @return ReviewResponse с средним рейтингом и количеством отзывов
      */
+    @Headers(CoalescingInterceptor.COALESCE)
     @GET("api/reviews/{setNum}/rating")
     Call<ReviewResponse> getAverageRating(@Path("setNum") String setNum);
 
+    /**
+     * Получить средние рейтинги сразу нескольких наборов
+     * @param setNums Номера наборов через запятую
+     * @return RatingsResponse со средним рейтингом и количеством отзывов для каждого набора
+     */
+    @Headers(CoalescingInterceptor.COALESCE)
+    @GET("api/reviews/ratings")
+    Call<RatingsResponse> getAverageRatings(@Query("set_nums") String setNums);
+
     /**
      * Получить отзывы пользователя
      * @param userId ID пользователя
@@ -0,0 +1,182 @@
+package com.example.legokp.network;
+
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.models.LegoSet;
+import com.example.legokp.utils.ModelMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Потоковое чтение страницы каталога (формат LegoSetResponse) без построения полного списка.
+ * results читается по одному элементу, элемент сразу превращается в LegoSetEntity,
+ * и каждые chunkSize сущностей уходят в ChunkConsumer. Пиковая память — один чанк, а не вся страница.
+ * Поля count/next могут идти в любом месте объекта.
+ * Формат выбирается по Content-Type: CBOR (Jackson JsonParser) или JSON (Gson JsonReader).
+ */
+public final class LegoSetStreamReader {
+
+    /**
+     * Получатель очередного чанка (например, транзакционная запись в БД)
+     */
+    public interface ChunkConsumer {
+        void accept(List<LegoSetEntity> chunk) throws IOException;
+    }
+
+    /**
+     * Метаданные страницы, прочитанные по ходу потока
+     */
+    public static class PageInfo {
+        public final int count;
+        public final String next;
+        public final int setsRead;
+
+        PageInfo(int count, String next, int setsRead) {
+            this.count = count;
+            this.next = next;
+            this.setsRead = setsRead;
+        }
+    }
+
+    // Та же конфигурация Gson, что у GsonConverterFactory в RetrofitClient, поэтому @SerializedName работают так же
+    private static final TypeAdapter<LegoSet> LEGO_SET_ADAPTER = new Gson().getAdapter(LegoSet.class);
+
+    private LegoSetStreamReader() {}
+
+    /**
+     * Прочитать тело и закрыть его
+     */
+    public static PageInfo read(ResponseBody body, int chunkSize, ChunkConsumer consumer) throws IOException {
+        boolean cbor = WireFormat.isCbor(body.contentType());
+        WireFormat.CountingSource counting = new WireFormat.CountingSource(body);
+        long start = System.nanoTime();
+
+        Chunker chunker = new Chunker(chunkSize, consumer);
+        try (ResponseBody ignored = body) {
+            BufferedSource source = counting.buffered();
+            if (cbor) {
+                readCbor(source, chunker);
+            } else {
+                readJson(source, chunker);
+            }
+        }
+        chunker.flush();
+        // Поток читается и пишется в БД вперемешку: в разбор не входят ни запись чанков, ни ожидание сети
+        WireFormat.record(cbor, counting.getBytesRead(),
+                System.nanoTime() - start - chunker.consumerNanos - counting.getReadNanos());
+        return new PageInfo(chunker.count, chunker.next, chunker.setsRead);
+    }
+
+    private static void readJson(BufferedSource source, Chunker chunker) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(source.inputStream(), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "count":
+                        chunker.count = reader.nextInt();
+                        break;
+                    case "next":
+                        chunker.next = reader.nextString();
+                        break;
+                    case "results":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            chunker.add(LEGO_SET_ADAPTER.read(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+    }
+
+    private static void readCbor(BufferedSource source, Chunker chunker) throws IOException {
+        try (JsonParser parser = WireFormat.CBOR_MAPPER.getFactory().createParser(source.inputStream())) {
+            if (parser.nextToken() != com.fasterxml.jackson.core.JsonToken.START_OBJECT) {
+                throw new IOException("Expected CBOR map at page root");
+            }
+            while (parser.nextToken() == com.fasterxml.jackson.core.JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                if (parser.nextToken() == com.fasterxml.jackson.core.JsonToken.VALUE_NULL) continue;
+                switch (name) {
+                    case "count":
+                        chunker.count = parser.getIntValue();
+                        break;
+                    case "next":
+                        chunker.next = parser.getText();
+                        break;
+                    case "results":
+                        while (parser.nextToken() == com.fasterxml.jackson.core.JsonToken.START_OBJECT) {
+                            chunker.add(WireFormat.CBOR_MAPPER.readValue(parser, LegoSet.class));
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Копит сущности и отдает их чанками
+     */
+    private static class Chunker {
+        final int chunkSize;
+        final ChunkConsumer consumer;
+        List<LegoSetEntity> chunk;
+        int count;
+        String next;
+        int setsRead;
+        // Время в consumer (запись в БД), не относится к разбору
+        long consumerNanos;
+
+        Chunker(int chunkSize, ChunkConsumer consumer) {
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+            this.chunk = new ArrayList<>(chunkSize);
+        }
+
+        void add(LegoSet set) throws IOException {
+            if (set == null || set.getSetNum() == null) return;
+            chunk.add(ModelMapper.toEntity(set));
+            setsRead++;
+            if (chunk.size() >= chunkSize) {
+                deliver();
+            }
+        }
+
+        void flush() throws IOException {
+            if (!chunk.isEmpty()) {
+                deliver();
+            }
+        }
+
+        private void deliver() throws IOException {
+            long start = System.nanoTime();
+            consumer.accept(chunk);
+            consumerNanos += System.nanoTime() - start;
+            chunk = new ArrayList<>(chunkSize);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.legokp.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Снимает тайминги одного вызова из событий OkHttp и по завершении отдает их в NetworkMetrics.
+ * Экземпляр создается на каждый вызов; события одного вызова приходят последовательно.
+ * При редиректах и повторных попытках фазы суммируются, ttfb берется по последнему запросу.
+ */
+public class MetricsEventListener extends EventListener {
+
+    public static final EventListener.Factory FACTORY =
+            call -> new MetricsEventListener(NetworkMetrics.endpointOf(call.request()));
+
+    private final String endpoint;
+    private final NetworkMetrics.CallSample sample = new NetworkMetrics.CallSample();
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestSent;
+    private long bodyStart;
+
+    private MetricsEventListener(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        sample.dnsNanos = add(sample.dnsNanos, System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        sample.tlsNanos = add(sample.tlsNanos, System.nanoTime() - secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        sample.connectNanos = add(sample.connectNanos, System.nanoTime() - connectStart);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                              Protocol protocol, IOException ioe) {
+        sample.connectNanos = add(sample.connectNanos, System.nanoTime() - connectStart);
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        sample.bytesOut += request.headers().byteCount();
+        requestSent = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        sample.bytesOut += byteCount;
+        requestSent = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        sample.ttfbNanos = System.nanoTime() - requestSent;
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        sample.bytesIn += response.headers().byteCount();
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        bodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        sample.bodyNanos = add(sample.bodyNanos, System.nanoTime() - bodyStart);
+        sample.bytesIn += byteCount;
+    }
+
+    @Override
+    public void cacheHit(Call call, Response response) {
+        sample.cacheStatus = NetworkMetrics.CacheStatus.HIT;
+    }
+
+    @Override
+    public void cacheConditionalHit(Call call, Response cachedResponse) {
+        sample.cacheStatus = NetworkMetrics.CacheStatus.CONDITIONAL_HIT;
+    }
+
+    @Override
+    public void cacheMiss(Call call) {
+        sample.cacheStatus = NetworkMetrics.CacheStatus.MISS;
+    }
+
+    @Override
+    public void satisfactionFailure(Call call, Response response) {
+        sample.cacheStatus = NetworkMetrics.CacheStatus.UNSATISFIED;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        finish(false);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        finish(true);
+    }
+
+    private void finish(boolean failed) {
+        sample.totalNanos = System.nanoTime() - callStart;
+        sample.failed = failed;
+        NetworkMetrics.record(endpoint, sample);
+    }
+
+    private static long add(long current, long nanos) {
+        return current < 0 ? nanos : current + nanos;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.legokp.network;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Конвертер ответов, который выбирает формат по Content-Type: CBOR читается Jackson,
+ * все остальное отдается JSON-конвертеру (Gson). Двоичный разбор включен только для перечисленных типов,
+ * запросы всегда сериализуются в JSON.
+ */
+public class NegotiatingConverterFactory extends Converter.Factory {
+
+    private final Converter.Factory jsonFactory;
+    private final Set<Type> binaryTypes;
+
+    public static NegotiatingConverterFactory create(Converter.Factory jsonFactory, Class<?>... binaryTypes) {
+        return new NegotiatingConverterFactory(jsonFactory, new HashSet<>(Arrays.asList(binaryTypes)));
+    }
+
+    private NegotiatingConverterFactory(Converter.Factory jsonFactory, Set<Type> binaryTypes) {
+        this.jsonFactory = jsonFactory;
+        this.binaryTypes = binaryTypes;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        Converter<ResponseBody, ?> jsonConverter = jsonFactory.responseBodyConverter(type, annotations, retrofit);
+        if (jsonConverter == null || !binaryTypes.contains(type)) {
+            return jsonConverter;
+        }
+        ObjectReader cborReader = WireFormat.CBOR_MAPPER.readerFor(WireFormat.CBOR_MAPPER.constructType(type));
+
+        return (Converter<ResponseBody, Object>) body -> {
+            boolean cbor = WireFormat.isCbor(body.contentType());
+            WireFormat.CountingSource counting = new WireFormat.CountingSource(body);
+            BufferedSource source = counting.buffered();
+            long start = System.nanoTime();
+            try {
+                Object value = cbor
+                        ? cborReader.readValue(source.inputStream())
+                        : jsonConverter.convert(ResponseBody.create(source, body.contentType(), body.contentLength()));
+                WireFormat.record(cbor, counting.getBytesRead(),
+                        System.nanoTime() - start - counting.getReadNanos());
+                return value;
+            } finally {
+                body.close();
+            }
+        };
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+        return jsonFactory.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.legokp.network;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import retrofit2.Invocation;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HTTP;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+/**
+ * Метрики сетевых вызовов по шаблону эндпоинта ("GET api/reviews/{setNum}").
+ * Данные пишет MetricsEventListener из событий OkHttp: DNS, соединение, TLS, ожидание первого байта,
+ * чтение тела, байты в обе стороны и как запрос обслужил HTTP-кэш.
+ * snapshot() дает неизменяемую копию для экрана диагностики и для тестов.
+ */
+public final class NetworkMetrics {
+
+    /**
+     * Как запрос обслужил HTTP-кэш (по событиям cacheHit / cacheMiss / cacheConditionalHit / satisfactionFailure)
+     */
+    public enum CacheStatus {
+        HIT,              // ответ из кэша без сети
+        CONDITIONAL_HIT,  // сервер ответил 304, тело из кэша
+        MISS,             // полный ответ из сети
+        UNSATISFIED,      // only-if-cached без подходящей записи (504)
+        NONE              // событий кэша не было: ответ отдан до OkHttp (CoalescingInterceptor) или вызов упал раньше
+    }
+
+    private static final Map<String, EndpointStats> ENDPOINTS = new ConcurrentHashMap<>();
+    // Шаблоны по методу LegoApiService: аннотации разбираются один раз
+    private static final Map<Method, String> TEMPLATES = new ConcurrentHashMap<>();
+
+    private NetworkMetrics() {}
+
+    /**
+     * Шаблон эндпоинта: путь из аннотации Retrofit, для @Url — путь запроса с числовыми сегментами, замененными на {id}
+     */
+    static String endpointOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            String template = TEMPLATES.computeIfAbsent(invocation.method(), NetworkMetrics::templateOf);
+            if (template != null) return template;
+        }
+        return request.method() + " " + collapsePath(request.url());
+    }
+
+    private static String templateOf(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            String verb = null;
+            String path = null;
+            if (annotation instanceof GET) {
+                verb = "GET";
+                path = ((GET) annotation).value();
+            } else if (annotation instanceof POST) {
+                verb = "POST";
+                path = ((POST) annotation).value();
+            } else if (annotation instanceof PUT) {
+                verb = "PUT";
+                path = ((PUT) annotation).value();
+            } else if (annotation instanceof DELETE) {
+                verb = "DELETE";
+                path = ((DELETE) annotation).value();
+            } else if (annotation instanceof PATCH) {
+                verb = "PATCH";
+                path = ((PATCH) annotation).value();
+            } else if (annotation instanceof HTTP) {
+                verb = ((HTTP) annotation).method();
+                path = ((HTTP) annotation).path();
+            }
+            if (verb != null) {
+                return path.isEmpty() ? null : verb + " " + path;
+            }
+        }
+        return null;
+    }
+
+    private static String collapsePath(HttpUrl url) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : url.pathSegments()) {
+            if (segment.isEmpty()) continue;
+            if (path.length() > 0) path.append('/');
+            path.append(segment.matches(".*\\d.*") ? "{id}" : segment);
+        }
+        return path.toString();
+    }
+
+    static void record(String endpoint, CallSample sample) {
+        ENDPOINTS.computeIfAbsent(endpoint, key -> new EndpointStats()).record(sample);
+    }
+
+    public static Snapshot snapshot() {
+        Map<String, EndpointStats> copy = new TreeMap<>();
+        for (Map.Entry<String, EndpointStats> entry : ENDPOINTS.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return new Snapshot(copy);
+    }
+
+    public static void reset() {
+        ENDPOINTS.clear();
+    }
+
+    /**
+     * Измерения одного вызова; фазы, которых не было (например, DNS на переиспользованном соединении), равны -1
+     */
+    static class CallSample {
+        long totalNanos = -1;
+        long dnsNanos = -1;
+        long connectNanos = -1;   // TCP + TLS
+        long tlsNanos = -1;
+        long ttfbNanos = -1;      // от отправки запроса до первого байта ответа
+        long bodyNanos = -1;
+        long bytesOut;
+        long bytesIn;
+        CacheStatus cacheStatus = CacheStatus.NONE;
+        boolean failed;
+    }
+
+    /**
+     * Накопленные метрики одного эндпоинта
+     */
+    public static class EndpointStats {
+        public final LatencyHistogram total;
+        public final LatencyHistogram dns;
+        public final LatencyHistogram connect;
+        public final LatencyHistogram tls;
+        public final LatencyHistogram ttfb;
+        public final LatencyHistogram body;
+        private final AtomicLong calls;
+        private final AtomicLong failures;
+        private final AtomicLong bytesOut;
+        private final AtomicLong bytesIn;
+        private final AtomicLongArray cacheCounts;
+
+        EndpointStats() {
+            this(new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram(),
+                    new LatencyHistogram(), new LatencyHistogram(), 0, 0, 0, 0, new long[CacheStatus.values().length]);
+        }
+
+        private EndpointStats(LatencyHistogram total, LatencyHistogram dns, LatencyHistogram connect,
+                              LatencyHistogram tls, LatencyHistogram ttfb, LatencyHistogram body,
+                              long calls, long failures, long bytesOut, long bytesIn, long[] cacheCounts) {
+            this.total = total;
+            this.dns = dns;
+            this.connect = connect;
+            this.tls = tls;
+            this.ttfb = ttfb;
+            this.body = body;
+            this.calls = new AtomicLong(calls);
+            this.failures = new AtomicLong(failures);
+            this.bytesOut = new AtomicLong(bytesOut);
+            this.bytesIn = new AtomicLong(bytesIn);
+            this.cacheCounts = new AtomicLongArray(cacheCounts);
+        }
+
+        void record(CallSample sample) {
+            calls.incrementAndGet();
+            if (sample.failed) failures.incrementAndGet();
+            total.record(sample.totalNanos);
+            dns.record(sample.dnsNanos);
+            connect.record(sample.connectNanos);
+            tls.record(sample.tlsNanos);
+            ttfb.record(sample.ttfbNanos);
+            body.record(sample.bodyNanos);
+            bytesOut.addAndGet(sample.bytesOut);
+            bytesIn.addAndGet(sample.bytesIn);
+            cacheCounts.incrementAndGet(sample.cacheStatus.ordinal());
+        }
+
+        EndpointStats copy() {
+            long[] cache = new long[cacheCounts.length()];
+            for (int i = 0; i < cache.length; i++) {
+                cache[i] = cacheCounts.get(i);
+            }
+            return new EndpointStats(total.copy(), dns.copy(), connect.copy(), tls.copy(), ttfb.copy(), body.copy(),
+                    calls.get(), failures.get(), bytesOut.get(), bytesIn.get(), cache);
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.get();
+        }
+
+        public long getBytesIn() {
+            return bytesIn.get();
+        }
+
+        public long getCacheCount(CacheStatus status) {
+            return cacheCounts.get(status.ordinal());
+        }
+    }
+
+    /**
+     * Неизменяемый снимок метрик по всем эндпоинтам (отсортирован по шаблону)
+     */
+    public static class Snapshot {
+        public final Map<String, EndpointStats> endpoints;
+
+        Snapshot(Map<String, EndpointStats> endpoints) {
+            this.endpoints = Collections.unmodifiableMap(endpoints);
+        }
+
+        public EndpointStats get(String endpoint) {
+            return endpoints.get(endpoint);
+        }
+
+        /**
+         * Текстовый дамп для экрана диагностики и логов
+         */
+        public String dump() {
+            StringBuilder out = new StringBuilder();
+            for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+                EndpointStats stats = entry.getValue();
+                out.append(entry.getKey()).append('\n')
+                        .append(String.format(Locale.US, "  calls=%d failed=%d out=%dB in=%dB%n",
+                                stats.getCalls(), stats.getFailures(), stats.getBytesOut(), stats.getBytesIn()))
+                        .append("  cache:");
+                for (CacheStatus status : CacheStatus.values()) {
+                    out.append(' ').append(status.name().toLowerCase(Locale.US)).append('=')
+                            .append(stats.getCacheCount(status));
+                }
+                out.append('\n')
+                        .append("  total   ").append(stats.total).append('\n')
+                        .append("  dns     ").append(stats.dns).append('\n')
+                        .append("  connect ").append(stats.connect).append('\n')
+                        .append("  tls     ").append(stats.tls).append('\n')
+                        .append("  ttfb    ").append(stats.ttfb).append('\n')
+                        .append("  body    ").append(stats.body).append('\n');
+            }
+            return out.length() == 0 ? "No calls recorded" : out.toString();
+        }
+    }
+}
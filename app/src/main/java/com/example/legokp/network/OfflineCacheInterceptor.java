@@ -0,0 +1,98 @@
+package com.example.legokp.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Offline-first для GET:
+ * - без сети запрос сразу идет в кэш (only-if-cached, max-stale = stale-if-error);
+ * - при ошибке сети или 5xx отдается устаревший ответ из кэша, если он есть.
+ * OkHttp сам stale-if-error не поддерживает, поэтому правило реализовано здесь.
+ */
+public class OfflineCacheInterceptor implements Interceptor {
+
+    private static final CacheControl STALE_FROM_CACHE = new CacheControl.Builder()
+            .onlyIfCached()
+            .maxStale(CacheControlInterceptor.STALE_IF_ERROR_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    private final Context appContext;
+    private final AtomicLong staleServed = new AtomicLong();
+
+    public OfflineCacheInterceptor(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /**
+     * Сколько раз отдан устаревший ответ вместо сети
+     */
+    public long getStaleServedCount() {
+        return staleServed.get();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+
+        if (!isOnline()) {
+            Response cached = chain.proceed(request.newBuilder().cacheControl(STALE_FROM_CACHE).build());
+            if (cached.code() != HttpURLConnection.HTTP_GATEWAY_TIMEOUT) {
+                staleServed.incrementAndGet();
+            }
+            return cached; // 504, если в кэше ничего нет
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            Response cached = fromCache(chain, request);
+            if (cached != null) return cached;
+            throw e;
+        }
+
+        if (response.code() >= 500) {
+            Response cached = fromCache(chain, request);
+            if (cached != null) {
+                response.close();
+                return cached;
+            }
+        }
+        return response;
+    }
+
+    private Response fromCache(Chain chain, Request request) throws IOException {
+        Response cached = chain.proceed(request.newBuilder().cacheControl(STALE_FROM_CACHE).build());
+        if (cached.code() == HttpURLConnection.HTTP_GATEWAY_TIMEOUT) {
+            cached.close();
+            return null;
+        }
+        staleServed.incrementAndGet();
+        return cached;
+    }
+
+    private boolean isOnline() {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) return true;
+        Network network = connectivityManager.getActiveNetwork();
+        if (network == null) return false;
+        NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+}
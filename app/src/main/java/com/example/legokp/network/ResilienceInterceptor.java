@@ -0,0 +1,184 @@
+package com.example.legokp.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Повторы с экспоненциальной задержкой и предохранитель (circuit breaker) по хосту.
+ * - Повторяются только идемпотентные методы (GET, HEAD, PUT, DELETE): POST мог дойти до сервера,
+ *   для отзывов повторами занимается ReviewOutbox.
+ * - Повод для повтора: ошибка сети, 408, 429 и 5xx. Задержка — full jitter: случайная в [0, min(cap, base * 2^n)].
+ * - Retry-After (секунды или HTTP-дата) соблюдается, если не дольше MAX_RETRY_AFTER_MILLIS; иначе ответ отдается как есть.
+ * - Открытый предохранитель отклоняет запрос сразу (CircuitOpenException). Для GET OfflineCacheInterceptor,
+ *   стоящий снаружи, в ответ на это отдает кэш. Запросы only-if-cached в сеть не идут и через предохранитель проходят всегда.
+ */
+public class ResilienceInterceptor implements Interceptor {
+
+    private static final String TAG = "ResilienceInterceptor";
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long BASE_DELAY_MILLIS = 300;
+    static final long MAX_DELAY_MILLIS = 5_000;
+    static final long MAX_RETRY_AFTER_MILLIS = 10_000;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong circuitOpened = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Запрос отклонен без обращения к сети: предохранитель хоста открыт
+     */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String host, long retryInMillis) {
+            super("Service temporarily unavailable (" + host + "), retry in " + (retryInMillis / 1000 + 1) + "s");
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+
+        String host = request.url().host();
+        CircuitBreaker breaker = breakers.computeIfAbsent(host, key -> new CircuitBreaker());
+        boolean idempotent = isIdempotent(request.method());
+
+        for (int attempt = 1; ; attempt++) {
+            long now = System.currentTimeMillis();
+            if (!breaker.allowRequest(now)) {
+                rejected.incrementAndGet();
+                throw new CircuitOpenException(host, breaker.remainingOpenMillis(now));
+            }
+
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    breaker.onCancelled();
+                    throw e;
+                }
+                recordFailure(breaker, host);
+                if (!idempotent || attempt >= MAX_ATTEMPTS) throw e;
+                sleep(backoffMillis(attempt));
+                retries.incrementAndGet();
+                Log.d(TAG, "Retry " + attempt + " for " + request.url().encodedPath() + " after " + e);
+                continue;
+            }
+
+            if (response.networkResponse() == null) {
+                // Ответ из HTTP-кэша: о здоровье хоста он ничего не говорит и пробу HALF_OPEN не закрывает
+                breaker.onCancelled();
+                return response;
+            }
+
+            if (!isRetryableStatus(response.code())) {
+                breaker.onSuccess();
+                return response;
+            }
+
+            recordFailure(breaker, host);
+            if (!idempotent || attempt >= MAX_ATTEMPTS) return response;
+
+            long delay = retryAfterMillis(response);
+            if (delay < 0) {
+                delay = backoffMillis(attempt);
+            } else if (delay > MAX_RETRY_AFTER_MILLIS) {
+                // Сервер просит ждать слишком долго: отдаем ответ, решение за вызывающим кодом
+                return response;
+            }
+            response.close();
+            sleep(delay);
+            retries.incrementAndGet();
+            Log.d(TAG, "Retry " + attempt + " for " + request.url().encodedPath() + " after HTTP " + response.code());
+        }
+    }
+
+    /**
+     * Верхняя граница длительности вызова через этот interceptor: MAX_ATTEMPTS попыток, каждая в пределах
+     * таймаутов, и задержки между ними (не больше MAX_RETRY_AFTER_MILLIS). 0 — если хоть один таймаут не ограничен.
+     */
+    static long maxCallMillis(long connectTimeoutMillis, long writeTimeoutMillis, long readTimeoutMillis) {
+        if (connectTimeoutMillis <= 0 || writeTimeoutMillis <= 0 || readTimeoutMillis <= 0) return 0;
+        long attempt = connectTimeoutMillis + writeTimeoutMillis + readTimeoutMillis;
+        long delay = Math.max(MAX_DELAY_MILLIS, MAX_RETRY_AFTER_MILLIS);
+        return MAX_ATTEMPTS * attempt + (MAX_ATTEMPTS - 1) * delay;
+    }
+
+    private void recordFailure(CircuitBreaker breaker, String host) {
+        if (breaker.onFailure(System.currentTimeMillis())) {
+            circuitOpened.incrementAndGet();
+            Log.w(TAG, "Circuit opened for " + host);
+        }
+    }
+
+    static boolean isIdempotent(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "PUT".equals(method) || "DELETE".equals(method);
+    }
+
+    static boolean isRetryableStatus(int code) {
+        return code == 408 || code == 429 || code >= 500;
+    }
+
+    /**
+     * Full jitter: случайная задержка в [0, min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS * 2^(attempt-1))]
+     */
+    static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Retry-After в миллисекундах или -1, если заголовка нет или он не разобран
+     */
+    static long retryAfterMillis(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) return -1;
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ignored) {
+            // не число — значит HTTP-дата
+        }
+        Date date = response.headers().getDate("Retry-After");
+        return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Счетчики для экрана диагностики
+     */
+    public String getStatsSummary() {
+        StringBuilder open = new StringBuilder();
+        for (Map.Entry<String, CircuitBreaker> entry : breakers.entrySet()) {
+            if (entry.getValue().getState() != CircuitBreaker.State.CLOSED) {
+                open.append(' ').append(entry.getKey()).append('=').append(entry.getValue().getState());
+            }
+        }
+        return String.format(Locale.US, "retries=%d circuitOpened=%d rejected=%d%s",
+                retries.get(), circuitOpened.get(), rejected.get(), open.length() == 0 ? "" : " |" + open);
+    }
+}
@@ -2,17 +2,45 @@ package com.example.legokp.network;
 
 import android.content.Context;
 
+import com.example.legokp.BuildConfig;
+import com.example.legokp.models.LegoSetResponse;
+import com.example.legokp.models.MinifigResponse;
+import com.example.legokp.models.ReviewResponse;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+/**
+ * Единственный сетевой стек приложения: один OkHttpClient (пул соединений, диспетчер, кэш),
+ * один Retrofit и один LegoApiService. Инициализация ленивая и потокобезопасная.
+ * Логирование тел ответов (BODY) включается только в debug-сборке: в release тела не буферизуются.
+ */
 public class RetrofitClient {
     private static final String BASE_URL = "https://a1f16f62-a8bf-411a-951b-2d86854aa09c.mock.pstmn.io/";
-    private static Retrofit retrofit = null;
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024; // 20 MB
+
+    // Соединения с одним хостом: держим немного простаивающих, чтобы не платить за TLS-рукопожатие заново
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    // Фоновые задачи (синхронизация каталога, отзывы, рейтинги) ходят на один хост параллельно
+    private static final int MAX_REQUESTS = 32;
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+
+    private static volatile Retrofit retrofit;
+    private static volatile LegoApiService apiService;
     private static Context appContext;
+    private static Cache httpCache;
+    private static OfflineCacheInterceptor offlineCacheInterceptor;
+    private static ResilienceInterceptor resilienceInterceptor;
 
     public static void init(Context context) {
         appContext = context.getApplicationContext();
@@ -20,32 +48,108 @@ public class RetrofitClient {
 
     public static Retrofit getClient() {
         if (retrofit == null) {
-            // Logging interceptor для отладки
+            synchronized (RetrofitClient.class) {
+                if (retrofit == null) {
+                    retrofit = buildRetrofit(BASE_URL, buildOkHttpClient());
+                }
+            }
+        }
+        return retrofit;
+    }
+
+    /**
+     * Retrofit поверх готового клиента. Отдельно от getClient, чтобы бенчмарк собирал тот же стек на MockWebServer
+     */
+    static Retrofit buildRetrofit(String baseUrl, OkHttpClient client) {
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(NegotiatingConverterFactory.create(GsonConverterFactory.create(),
+                        LegoSetResponse.class, ReviewResponse.class, MinifigResponse.class))
+                .build();
+    }
+
+    /**
+     * Пул соединений, диспетчер и таймауты — без кэша и interceptors, которым нужен Context
+     */
+    static OkHttpClient.Builder tunedClientBuilder() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS);
+    }
+
+    private static OkHttpClient buildOkHttpClient() {
+        // Дисковый HTTP-кэш: TTL по эндпоинтам задает CacheControlInterceptor
+        httpCache = new Cache(new File(appContext.getCacheDir(), "http_cache"), HTTP_CACHE_SIZE);
+        offlineCacheInterceptor = new OfflineCacheInterceptor(appContext);
+        resilienceInterceptor = new ResilienceInterceptor();
+
+        OkHttpClient.Builder builder = tunedClientBuilder()
+                .cache(httpCache)
+                // Тайминги фаз, байты и статус кэша по эндпоинтам (NetworkMetrics)
+                .eventListenerFactory(MetricsEventListener.FACTORY)
+                // Auth interceptor для автоматического добавления токена
+                .addInterceptor(new AuthInterceptor(appContext))
+                // Одинаковые одновременные GET выполняются одним HTTP-вызовом
+                .addInterceptor(new CoalescingInterceptor())
+                // Без сети или при ошибке сервера — ответ из кэша
+                .addInterceptor(offlineCacheInterceptor)
+                // Повторы с задержкой и предохранитель по хосту; открытый предохранитель для GET уходит в кэш выше
+                .addInterceptor(resilienceInterceptor)
+                .addNetworkInterceptor(new CacheControlInterceptor(httpCache));
+
+        if (BuildConfig.DEBUG) {
+            // Logging interceptor для отладки: BODY читает тело целиком в память, поэтому только в debug
             HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
             loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+            loggingInterceptor.redactHeader("Authorization");
+            builder.addInterceptor(loggingInterceptor);
+        }
+        return builder.build();
+    }
 
-            // Auth interceptor для автоматического добавления токена
-            AuthInterceptor authInterceptor = new AuthInterceptor(appContext);
-
-            // OkHttpClient с interceptors
-            OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                    .addInterceptor(authInterceptor)
-                    .addInterceptor(loggingInterceptor)
-                    .connectTimeout(30, TimeUnit.SECONDS)
-                    .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .build();
-
-            retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .client(okHttpClient)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
+    /**
+     * Счетчики попаданий и промахов HTTP-кэша
+     */
+    public static HttpCacheStats getCacheStats() {
+        if (httpCache == null) {
+            return new HttpCacheStats(0, 0, 0, 0, 0);
         }
-        return retrofit;
+        long size;
+        try {
+            size = httpCache.size();
+        } catch (IOException e) {
+            size = 0;
+        }
+        return new HttpCacheStats(httpCache.requestCount(), httpCache.hitCount(), httpCache.networkCount(),
+                offlineCacheInterceptor.getStaleServedCount(), size);
     }
 
+    /**
+     * Повторы и состояние предохранителей
+     */
+    public static String getResilienceStats() {
+        return resilienceInterceptor != null ? resilienceInterceptor.getStatsSummary() : "-";
+    }
+
+    /**
+     * Общий экземпляр API. Retrofit.create строит прокси и разбирает аннотации, поэтому делается один раз.
+     */
     public static LegoApiService getApiService() {
-        return getClient().create(LegoApiService.class);
+        if (apiService == null) {
+            synchronized (RetrofitClient.class) {
+                if (apiService == null) {
+                    apiService = getClient().create(LegoApiService.class);
+                }
+            }
+        }
+        return apiService;
     }
 }
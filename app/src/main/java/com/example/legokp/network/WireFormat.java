@@ -0,0 +1,155 @@
+package com.example.legokp.network;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Двоичный формат ответов (CBOR) с JSON в качестве запасного варианта.
+ * Клиент просит CBOR заголовком Accept (ACCEPT_CBOR_OR_JSON), сервер может ответить любым из двух форматов,
+ * разбор выбирается по Content-Type ответа (см. NegotiatingConverterFactory, LegoSetStreamReader).
+ * Модели остаются с аннотациями Gson: имена полей для Jackson берутся из @SerializedName,
+ * поэтому ключи в CBOR и JSON одинаковые.
+ */
+public final class WireFormat {
+
+    public static final String ACCEPT_CBOR_OR_JSON = "Accept: application/cbor, application/json;q=0.9";
+
+    static final ObjectMapper CBOR_MAPPER = createCborMapper();
+
+    private static final Counters CBOR = new Counters();
+    private static final Counters JSON = new Counters();
+
+    private WireFormat() {}
+
+    public static boolean isCbor(MediaType contentType) {
+        return contentType != null && "cbor".equalsIgnoreCase(contentType.subtype());
+    }
+
+    /**
+     * Учесть разобранный ответ: прочитанные байты тела и время разбора
+     */
+    static void record(boolean cbor, long bytes, long parseNanos) {
+        Counters counters = cbor ? CBOR : JSON;
+        counters.responses.incrementAndGet();
+        counters.bytes.addAndGet(bytes);
+        counters.parseNanos.addAndGet(parseNanos);
+    }
+
+    public static Stats getStats() {
+        return new Stats(CBOR.snapshot(), JSON.snapshot());
+    }
+
+    private static ObjectMapper createCborMapper() {
+        ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+        // Как у Gson: только поля, геттеры и сеттеры не участвуют
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.setAnnotationIntrospector(new SerializedNameIntrospector());
+        return mapper;
+    }
+
+    /**
+     * Имена свойств Jackson из @SerializedName
+     */
+    private static class SerializedNameIntrospector extends JacksonAnnotationIntrospector {
+        @Override
+        public PropertyName findNameForDeserialization(Annotated annotated) {
+            SerializedName name = annotated.getAnnotation(SerializedName.class);
+            return name != null ? PropertyName.construct(name.value()) : super.findNameForDeserialization(annotated);
+        }
+
+        @Override
+        public PropertyName findNameForSerialization(Annotated annotated) {
+            SerializedName name = annotated.getAnnotation(SerializedName.class);
+            return name != null ? PropertyName.construct(name.value()) : super.findNameForSerialization(annotated);
+        }
+    }
+
+    /**
+     * Источник тела, который считает прочитанные байты и время ожидания данных.
+     * contentLength() для chunked и распакованных gzip-ответов равен -1, поэтому размер берется отсюда
+     * (байты после распаковки, то есть размер самого формата). Время чтения вычитается из времени разбора.
+     */
+    static final class CountingSource extends ForwardingSource {
+        private long bytesRead;
+        private long readNanos;
+
+        CountingSource(ResponseBody body) {
+            super(body.source());
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long start = System.nanoTime();
+            long read = super.read(sink, byteCount);
+            readNanos += System.nanoTime() - start;
+            if (read > 0) bytesRead += read;
+            return read;
+        }
+
+        BufferedSource buffered() {
+            return Okio.buffer(this);
+        }
+
+        long getBytesRead() {
+            return bytesRead;
+        }
+
+        long getReadNanos() {
+            return readNanos;
+        }
+    }
+
+    private static class Counters {
+        final AtomicLong responses = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong parseNanos = new AtomicLong();
+
+        long[] snapshot() {
+            return new long[]{responses.get(), bytes.get(), parseNanos.get()};
+        }
+    }
+
+    /**
+     * Размер и время разбора ответов по форматам, для сравнения CBOR и JSON
+     */
+    public static class Stats {
+        public final long cborResponses, cborBytes, cborParseNanos;
+        public final long jsonResponses, jsonBytes, jsonParseNanos;
+
+        Stats(long[] cbor, long[] json) {
+            cborResponses = cbor[0];
+            cborBytes = cbor[1];
+            cborParseNanos = cbor[2];
+            jsonResponses = json[0];
+            jsonBytes = json[1];
+            jsonParseNanos = json[2];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "CBOR: %d responses, %d KB, %.1f ms parse | JSON: %d responses, %d KB, %.1f ms parse",
+                    cborResponses, cborBytes / 1024, cborParseNanos / 1e6,
+                    jsonResponses, jsonBytes / 1024, jsonParseNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.legokp.repository;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.LegoSetDao;
+import com.example.legokp.database.entity.LegoSetCatalogFields;
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.models.LegoSet;
+import com.example.legokp.network.LegoApiService;
+import com.example.legokp.network.RetrofitClient;
+import com.example.legokp.utils.Constants;
+import com.example.legokp.utils.ModelMapper;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import retrofit2.Response;
+
+/**
+ * Stale-while-revalidate для каталога.
+ * UI всегда читает кэш из Room сразу. Строки старше CACHE_EXPIRATION (по last_updated)
+ * перепроверяются в фоне условными запросами (If-None-Match / If-Modified-Since).
+ * 304 Not Modified не пишет в БД: набор запоминается как проверенный в памяти процесса.
+ * Проходы идут по устаревшим строкам курсором (last_updated, set_num), поэтому подтвержденные
+ * строки, которые остаются устаревшими в БД, не выбираются снова в каждом проходе.
+ * Измененные наборы записываются одной транзакцией на проход.
+ */
+public class CatalogFreshnessPolicy {
+
+    private static final String TAG = "CatalogFreshness";
+
+    // Сколько устаревших строк перепроверять за один проход
+    private static final int REVALIDATE_BATCH_SIZE = 100;
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+
+    private static volatile CatalogFreshnessPolicy INSTANCE;
+
+    private final AppDatabase database;
+    private final LegoSetDao legoSetDao;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService requestExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_REQUESTS);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // set_num -> когда сервер в последний раз подтвердил 304 (только в памяти, без записи в БД)
+    private final Map<String, Long> validatedAt = new ConcurrentHashMap<>();
+
+    // Позиция прохода по устаревшим строкам; меняется только на coordinator
+    private long cursorUpdated = Long.MIN_VALUE;
+    private String cursorSetNum = "";
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final MutableLiveData<FreshnessStats> stats = new MutableLiveData<>(new FreshnessStats(0, 0, 0, 0, 0, 0));
+
+    public static CatalogFreshnessPolicy getInstance(Application application) {
+        if (INSTANCE == null) {
+            synchronized (CatalogFreshnessPolicy.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new CatalogFreshnessPolicy(application);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private CatalogFreshnessPolicy(Application application) {
+        database = AppDatabase.getDatabase(application);
+        legoSetDao = database.legoSetDao();
+    }
+
+    public LiveData<FreshnessStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Учесть строку, которую UI получил из кэша (вызывается при чтении страниц сетки)
+     */
+    public void recordServed(LegoSetEntity entity) {
+        long threshold = System.currentTimeMillis() - Constants.CACHE_EXPIRATION;
+        Long validated = validatedAt.get(entity.getSetNum());
+        if (entity.getLastUpdated() >= threshold || (validated != null && validated >= threshold)) {
+            hits.incrementAndGet();
+        } else {
+            stale.incrementAndGet();
+        }
+    }
+
+    /**
+     * Найти устаревшие строки и перепроверить их в фоне. Повторный вызов во время прохода игнорируется.
+     */
+    public void revalidateStale() {
+        if (!running.compareAndSet(false, true)) return;
+        coordinator.execute(() -> {
+            try {
+                runPass();
+            } catch (Exception e) {
+                Log.e(TAG, "Revalidation pass failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private void runPass() {
+        long now = System.currentTimeMillis();
+        long threshold = now - Constants.CACHE_EXPIRATION;
+
+        // Следующие устаревшие строки после курсора; уже подтвержденные пропускаются, но курсор идет дальше.
+        // Дойдя до конца, курсор возвращается в начало к следующему проходу.
+        List<LegoSetEntity> candidates = new ArrayList<>();
+        while (candidates.size() < REVALIDATE_BATCH_SIZE) {
+            List<LegoSetEntity> batch = legoSetDao.getOutdatedSetsAfter(threshold, cursorUpdated, cursorSetNum,
+                    REVALIDATE_BATCH_SIZE);
+            for (LegoSetEntity entity : batch) {
+                cursorUpdated = entity.getLastUpdated();
+                cursorSetNum = entity.getSetNum();
+                Long validated = validatedAt.get(entity.getSetNum());
+                if (validated == null || validated < threshold) {
+                    candidates.add(entity);
+                }
+            }
+            if (batch.size() < REVALIDATE_BATCH_SIZE) {
+                cursorUpdated = Long.MIN_VALUE;
+                cursorSetNum = "";
+                break;
+            }
+        }
+        revalidated.addAndGet(candidates.size());
+
+        LegoApiService api = RetrofitClient.getApiService();
+        List<Future<LegoSetEntity>> futures = new ArrayList<>();
+        for (LegoSetEntity cached : candidates) {
+            futures.add(requestExecutor.submit(() -> revalidate(api, cached, now)));
+        }
+
+        // Только реально измененные строки, одной транзакцией
+        List<LegoSetEntity> changed = new ArrayList<>();
+        for (Future<LegoSetEntity> future : futures) {
+            try {
+                LegoSetEntity entity = future.get();
+                if (entity != null) changed.add(entity);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                failed.incrementAndGet();
+                Log.w(TAG, "Revalidation request failed: " + e.getCause());
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            database.runInTransaction(() -> {
+                List<LegoSetCatalogFields> fields = new ArrayList<>();
+                for (LegoSetEntity entity : changed) {
+                    fields.add(LegoSetCatalogFields.from(entity));
+                }
+                legoSetDao.updateCatalogFields(fields);
+                for (LegoSetEntity entity : changed) {
+                    legoSetDao.updateValidators(entity.getSetNum(), entity.getEtag(), entity.getLastModified(), now);
+                }
+            });
+        }
+        publishStats();
+        Log.d(TAG, "Revalidated " + candidates.size() + " stale sets, " + changed.size() + " changed");
+    }
+
+    /**
+     * Условный запрос для одной строки.
+     * @return новая версия строки, если ее нужно записать, иначе null
+     */
+    private LegoSetEntity revalidate(LegoApiService api, LegoSetEntity cached, long now) throws Exception {
+        // If-Modified-Since — только дата, которую прислал сервер: локальные часы могут расходиться с серверными
+        Response<LegoSet> response = api.getLegoSet(cached.getSetNum(), cached.getEtag(),
+                cached.getLastModified()).execute();
+
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            notModified.incrementAndGet();
+            validatedAt.put(cached.getSetNum(), now);
+            return null;
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new Exception("HTTP " + response.code() + " for " + cached.getSetNum());
+        }
+
+        LegoSetEntity fresh = ModelMapper.toEntity(response.body());
+        fresh.setFavorite(cached.isFavorite());
+        fresh.setEtag(response.headers().get("ETag"));
+        fresh.setLastModified(response.headers().get("Last-Modified"));
+        if (fresh.hasSameCatalogData(cached) && Objects.equals(fresh.getEtag(), cached.getEtag())
+                && Objects.equals(fresh.getLastModified(), cached.getLastModified())) {
+            // Сервер не поддержал условный запрос, но данные те же: тоже без записи
+            notModified.incrementAndGet();
+            validatedAt.put(cached.getSetNum(), now);
+            return null;
+        }
+        refreshed.incrementAndGet();
+        validatedAt.remove(cached.getSetNum());
+        return fresh;
+    }
+
+    private void publishStats() {
+        stats.postValue(new FreshnessStats(hits.get(), stale.get(), revalidated.get(), refreshed.get(),
+                notModified.get(), failed.get()));
+    }
+
+    /**
+     * Счетчики свежести кэша с момента запуска процесса
+     */
+    public static class FreshnessStats {
+        public final long hits;        // отданные UI строки, которые были свежими
+        public final long stale;       // отданные UI строки, которые были устаревшими
+        public final long revalidated; // условные запросы на перепроверку
+        public final long refreshed;   // перепроверка вернула новые данные (запись в БД)
+        public final long notModified; // перепроверка подтвердила кэш (без записи)
+        public final long failed;
+
+        FreshnessStats(long hits, long stale, long revalidated, long refreshed, long notModified, long failed) {
+            this.hits = hits;
+            this.stale = stale;
+            this.revalidated = revalidated;
+            this.refreshed = refreshed;
+            this.notModified = notModified;
+            this.failed = failed;
+        }
+
+        public double hitRatio() {
+            long total = hits + stale;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public double staleRatio() {
+            long total = hits + stale;
+            return total == 0 ? 0 : (double) stale / total;
+        }
+
+        public double refreshedRatio() {
+            return revalidated == 0 ? 0 : (double) refreshed / revalidated;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "hit=%.2f stale=%.2f refreshed=%.2f (304=%d, failed=%d)",
+                    hitRatio(), staleRatio(), refreshedRatio(), notModified, failed);
+        }
+    }
+}
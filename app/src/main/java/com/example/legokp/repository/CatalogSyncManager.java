@@ -0,0 +1,294 @@
+package com.example.legokp.repository;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.LegoSetDao;
+import com.example.legokp.network.LegoApiService;
+import com.example.legokp.network.RetrofitClient;
+import com.example.legokp.utils.Constants;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+
+/**
+ * Полная фоновая синхронизация каталога.
+ * Первая страница дает count, остальные страницы загружаются параллельно (не больше SYNC_MAX_PARALLEL_PAGES),
+ * каждая читается потоком и сохраняется в БД чанками по мере чтения (см. LegoRepository.ingestCatalogPage).
+ * Номера загруженных страниц хранятся в SharedPreferences, поэтому после смерти процесса синхронизация продолжается.
+ * Если сервер не вернул count, страницы обходятся последовательно по ссылке next
+ * (такой обход после перезапуска начинается с первой страницы; неизмененные строки при этом не пишутся).
+ * Наборы, которые сервер вернул без изменений, по ходу только запоминаются, а их last_updated
+ * обновляется одной транзакцией после последней страницы: запись на каждый чанк инвалидировала бы
+ * PagingSource сетки на протяжении всей синхронизации. Если процесс умер посреди синхронизации,
+ * такие строки со страниц до перезапуска остаются устаревшими и перепроверяются CatalogFreshnessPolicy.
+ */
+public class CatalogSyncManager {
+
+    private static final String TAG = "CatalogSyncManager";
+
+    private static final String KEY_PAGE_SIZE = "page_size";
+    private static final String KEY_TOTAL_PAGES = "total_pages";
+    private static final String KEY_DONE_PAGES = "done_pages";
+    private static final String KEY_COMPLETED_AT = "completed_at";
+
+    private static volatile CatalogSyncManager INSTANCE;
+
+    private final LegoRepository repository;
+    private final LegoSetDao legoSetDao;
+    private final Supplier<LegoApiService> apiProvider;
+    private final SharedPreferences prefs;
+    private final int pageSize;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService pageExecutor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final MutableLiveData<SyncProgress> progress = new MutableLiveData<>(SyncProgress.idle());
+
+    private final Object stateLock = new Object();
+    private final Set<Integer> donePages = new HashSet<>();
+    // Наборы без изменений с загруженных страниц: last_updated обновляется в конце синхронизации
+    private final Set<String> confirmedSetNums = new HashSet<>();
+    private int pagesDone;
+    private int totalPages;
+    private int setsWritten;
+
+    public static CatalogSyncManager getInstance(Application application) {
+        if (INSTANCE == null) {
+            synchronized (CatalogSyncManager.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new CatalogSyncManager(application, RetrofitClient::getApiService,
+                            Constants.SYNC_PAGE_SIZE, Constants.SYNC_MAX_PARALLEL_PAGES);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @param apiProvider API берется при запуске синхронизации (в тестах — сервис на MockWebServer)
+     */
+    CatalogSyncManager(Application application, Supplier<LegoApiService> apiProvider,
+                       int pageSize, int maxParallelPages) {
+        this.repository = new LegoRepository(application);
+        this.legoSetDao = AppDatabase.getDatabase(application).legoSetDao();
+        this.apiProvider = apiProvider;
+        this.prefs = application.getSharedPreferences(Constants.SYNC_PREF_NAME, Context.MODE_PRIVATE);
+        this.pageSize = pageSize;
+        this.pageExecutor = Executors.newFixedThreadPool(maxParallelPages);
+    }
+
+    public LiveData<SyncProgress> getProgress() {
+        return progress;
+    }
+
+    /**
+     * Запустить синхронизацию, если каталог еще ни разу не был загружен полностью
+     * или предыдущая синхронизация была прервана. Повторный вызов во время работы ничего не делает.
+     */
+    public void syncIfNeeded() {
+        coordinator.execute(() -> {
+            boolean completed = prefs.getLong(KEY_COMPLETED_AT, 0) > 0;
+            boolean empty = legoSetDao.getSetCount() == 0;
+            if (!completed || empty) {
+                runSync(empty);
+            }
+        });
+    }
+
+    /**
+     * Синхронизировать каталог заново, не учитывая сохраненный прогресс
+     */
+    public void forceSync() {
+        coordinator.execute(() -> runSync(true));
+    }
+
+    // Выполняется на coordinator
+    private void runSync(boolean restart) {
+        if (!running.compareAndSet(false, true)) return;
+        try {
+            if (restart || prefs.getInt(KEY_PAGE_SIZE, 0) != pageSize) {
+                resetCursor();
+                synchronized (stateLock) {
+                    confirmedSetNums.clear();
+                }
+            }
+            LegoApiService api = apiProvider.get();
+
+            synchronized (stateLock) {
+                donePages.clear();
+                donePages.addAll(loadDonePages());
+                totalPages = prefs.getInt(KEY_TOTAL_PAGES, 0);
+                pagesDone = donePages.size();
+                setsWritten = 0;
+            }
+            publish(SyncProgress.State.RUNNING, null);
+
+            // Первая страница: узнаем общее количество
+            LegoRepository.CatalogPageResult first = null;
+            if (totalPages == 0 || !isPageDone(1)) {
+                first = fetchAndStorePage(api.streamLegoSets(1, pageSize, null, null, null), 1);
+                if (first.count > 0) {
+                    int pages = (first.count + pageSize - 1) / pageSize;
+                    synchronized (stateLock) {
+                        totalPages = pages;
+                    }
+                    prefs.edit().putInt(KEY_TOTAL_PAGES, pages).apply();
+                }
+            }
+
+            if (totalPages == 0) {
+                // count не пришел: идем по ссылкам next последовательно
+                String next = first != null ? first.next : null;
+                int page = 1;
+                while (next != null) {
+                    page++;
+                    next = fetchAndStorePage(api.streamLegoSetsByUrl(next), page).next;
+                }
+            } else {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int page = 2; page <= totalPages; page++) {
+                    if (isPageDone(page)) continue;
+                    final int pageNum = page;
+                    futures.add(pageExecutor.submit(() -> {
+                        fetchAndStorePage(api.streamLegoSets(pageNum, pageSize, null, null, null), pageNum);
+                        return null;
+                    }));
+                }
+                String error = null;
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                        Log.e(TAG, "Page failed, will be retried on next sync", e.getCause());
+                    }
+                }
+                if (error != null) {
+                    publish(SyncProgress.State.FAILED, error);
+                    return;
+                }
+            }
+
+            List<String> confirmed;
+            synchronized (stateLock) {
+                confirmed = new ArrayList<>(confirmedSetNums);
+                confirmedSetNums.clear();
+            }
+            repository.touchConfirmedSets(confirmed);
+
+            prefs.edit()
+                    .putLong(KEY_COMPLETED_AT, System.currentTimeMillis())
+                    .remove(KEY_DONE_PAGES)
+                    .apply();
+            publish(SyncProgress.State.DONE, null);
+            Log.d(TAG, "Catalog sync finished: " + setsWritten + " sets written");
+        } catch (Exception e) {
+            Log.e(TAG, "Catalog sync failed", e);
+            publish(SyncProgress.State.FAILED, e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Прочитать страницу потоком и записать ее чанками; страница отмечается загруженной после последнего чанка
+     */
+    private LegoRepository.CatalogPageResult fetchAndStorePage(Call<ResponseBody> call, int page) throws IOException {
+        LegoRepository.CatalogPageResult result;
+        try {
+            result = repository.ingestCatalogPage(call);
+        } catch (IOException e) {
+            throw new IOException("Failed to fetch page " + page + ": " + e.getMessage(), e);
+        }
+        synchronized (stateLock) {
+            if (donePages.add(page)) {
+                pagesDone++;
+            }
+            setsWritten += result.upserts.inserted + result.upserts.updated;
+            confirmedSetNums.addAll(result.upserts.unchangedSetNums);
+            // Курсор сохраняется после записи страницы в БД
+            Set<String> persisted = new HashSet<>();
+            for (Integer done : donePages) {
+                persisted.add(String.valueOf(done));
+            }
+            prefs.edit().putStringSet(KEY_DONE_PAGES, persisted).apply();
+        }
+        publish(SyncProgress.State.RUNNING, null);
+        return result;
+    }
+
+    private boolean isPageDone(int page) {
+        synchronized (stateLock) {
+            return donePages.contains(page);
+        }
+    }
+
+    private Set<Integer> loadDonePages() {
+        Set<Integer> pages = new HashSet<>();
+        for (String page : prefs.getStringSet(KEY_DONE_PAGES, new HashSet<>())) {
+            pages.add(Integer.parseInt(page));
+        }
+        return pages;
+    }
+
+    private void resetCursor() {
+        prefs.edit()
+                .clear()
+                .putInt(KEY_PAGE_SIZE, pageSize)
+                .apply();
+    }
+
+    private void publish(SyncProgress.State state, String error) {
+        synchronized (stateLock) {
+            progress.postValue(new SyncProgress(state, pagesDone, totalPages, setsWritten, error));
+        }
+    }
+
+    /**
+     * Состояние синхронизации для UI
+     */
+    public static class SyncProgress {
+
+        public enum State { IDLE, RUNNING, DONE, FAILED }
+
+        public final State state;
+        public final int pagesDone;
+        public final int totalPages; // 0, если неизвестно
+        public final int setsWritten;
+        public final String error;
+
+        SyncProgress(State state, int pagesDone, int totalPages, int setsWritten, String error) {
+            this.state = state;
+            this.pagesDone = pagesDone;
+            this.totalPages = totalPages;
+            this.setsWritten = setsWritten;
+            this.error = error;
+        }
+
+        static SyncProgress idle() {
+            return new SyncProgress(State.IDLE, 0, 0, 0, null);
+        }
+
+        public boolean isRunning() {
+            return state == State.RUNNING;
+        }
+    }
+}
@@ -7,54 +7,158 @@ import android.util.Log;
 
 import androidx.core.os.HandlerCompat;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
 import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.FtsQuery;
 import com.example.legokp.database.dao.LegoSetDao;
+import com.example.legokp.database.entity.LegoSetCatalogFields;
 import com.example.legokp.database.entity.LegoSetEntity;
 import com.example.legokp.models.LegoSet;
-import com.example.legokp.models.LegoSetResponse;
-import com.example.legokp.network.RetrofitClient;
+import com.example.legokp.network.LegoSetStreamReader;
+import com.example.legokp.utils.Constants;
 import com.example.legokp.utils.ModelMapper;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
-import retrofit2.Callback;
 import retrofit2.Response;
 
 public class LegoRepository {
 
     private static final String TAG = "LegoRepository";
+
+    // Постраничная загрузка каталога: окно строк, а не вся таблица
+    private static final int CATALOG_PAGE_SIZE = 40;
+    private static final int CATALOG_PREFETCH_DISTANCE = 20;
+    private static final int CATALOG_INITIAL_LOAD_SIZE = 80;
+    // Сколько элементов держать в памяти одновременно, дальние страницы выгружаются
+    private static final int CATALOG_MAX_SIZE = 240;
+    // Ограничение SQLite на число параметров в IN (...)
+    private static final int MAX_IN_CLAUSE_SIZE = 500;
+
+    private final AppDatabase database;
     private final LegoSetDao legoSetDao;
-    private final LiveData<List<LegoSetEntity>> allSets;
-    private final LiveData<List<LegoSetEntity>> favoriteSets;
     private final ExecutorService databaseWriteExecutor;
     private final Handler mainThreadHandler;
+    private final CatalogFreshnessPolicy freshnessPolicy;
+    private final RatingBatcher ratingBatcher;
 
     public LegoRepository(Application application) {
-        AppDatabase database = AppDatabase.getDatabase(application);
+        this(application, AppDatabase.getDatabase(application));
+    }
+
+    /**
+     * @param database БД приложения (в тестах — БД в памяти)
+     */
+    public LegoRepository(Application application, AppDatabase database) {
+        this.database = database;
         legoSetDao = database.legoSetDao();
-        allSets = legoSetDao.getAllSets();
-        favoriteSets = legoSetDao.getFavoriteSets();
         databaseWriteExecutor = AppDatabase.databaseWriteExecutor;
         mainThreadHandler = HandlerCompat.createAsync(Looper.getMainLooper());
+        freshnessPolicy = CatalogFreshnessPolicy.getInstance(application);
+        ratingBatcher = RatingBatcher.getInstance(application);
+    }
+
+    /**
+     * Запросить серверные рейтинги видимых наборов (пакетом, с debounce)
+     */
+    public void requestRatings(List<String> setNums) {
+        ratingBatcher.request(setNums);
+    }
+
+    /**
+     * Перепроверить в фоне устаревшие строки каталога (кэш при этом продолжает отдаваться сразу)
+     */
+    public void revalidateStaleSets() {
+        freshnessPolicy.revalidateStale();
+    }
+
+    public LiveData<CatalogFreshnessPolicy.FreshnessStats> getFreshnessStats() {
+        return freshnessPolicy.getStats();
+    }
+
+    /**
+     * Каталог с фильтрами постранично, сразу в виде моделей для LegoSetAdapter
+     */
+    public LiveData<PagingData<LegoSet>> getFilteredSetsPaged(SupportSQLiteQuery query) {
+        return toModelPages(new Pager<>(catalogPagingConfig(),
+                () -> legoSetDao.getFilteredSetsPaged(query)));
     }
 
-    public LiveData<List<LegoSetEntity>> getAllSets() {
-        return allSets;
+    public LiveData<Integer> getFilteredSetCount(SupportSQLiteQuery countQuery) {
+        return legoSetDao.getFilteredSetCount(countQuery);
     }
 
-    public LiveData<List<LegoSetEntity>> getFavoriteSets() {
-        return favoriteSets;
+    public LiveData<PagingData<LegoSet>> getFavoriteSetsPaged() {
+        return toModelPages(new Pager<>(catalogPagingConfig(), legoSetDao::getFavoriteSetsPaged));
     }
 
-    public LiveData<List<LegoSetEntity>> getSetsByTheme(String theme) {
-        return legoSetDao.getSetsByTheme(theme);
+    public LiveData<Integer> getFavoriteCountLive() {
+        return legoSetDao.getFavoriteCountLive();
     }
 
+    private static PagingConfig catalogPagingConfig() {
+        return new PagingConfig(CATALOG_PAGE_SIZE, CATALOG_PREFETCH_DISTANCE, false,
+                CATALOG_INITIAL_LOAD_SIZE, CATALOG_MAX_SIZE);
+    }
+
+    // Entity -> LegoSet по одной странице на фоновом потоке; каждая отданная строка учитывается в счетчиках свежести
+    private LiveData<PagingData<LegoSet>> toModelPages(Pager<Integer, LegoSetEntity> pager) {
+        return Transformations.map(PagingLiveData.getLiveData(pager),
+                pagingData -> PagingDataTransforms.map(pagingData, databaseWriteExecutor, entity -> {
+                    freshnessPolicy.recordServed(entity);
+                    return ModelMapper.toModel(entity);
+                }));
+    }
+
+    /**
+     * Поиск по префиксам слов в названии, теме и описании (FTS-индекс вместо LIKE '%...%').
+     * Сетка каталога ищет по подстроке названия (CatalogQueryBuilder), этот поиск — отдельный.
+     */
     public LiveData<List<LegoSetEntity>> searchSets(String query) {
-        return legoSetDao.searchSets(query);
+        String matchQuery = FtsQuery.prefix(query);
+        if (matchQuery == null) {
+            return new MutableLiveData<>(Collections.emptyList());
+        }
+        return legoSetDao.searchSetsFts(matchQuery);
+    }
+
+    /**
+     * Первые limit наборов по релевантности FTS (см. LegoSetDao.searchSetsRanked).
+     * Результат на момент вызова: последующие изменения каталога в него не попадают.
+     */
+    public LiveData<List<LegoSetEntity>> searchSetsRanked(String query, int limit) {
+        String matchQuery = FtsQuery.prefix(query);
+        if (matchQuery == null) {
+            return new MutableLiveData<>(Collections.emptyList());
+        }
+        MutableLiveData<List<LegoSetEntity>> result = new MutableLiveData<>();
+        databaseWriteExecutor.execute(() -> {
+            try {
+                result.postValue(legoSetDao.searchSetsRanked(matchQuery, Math.min(limit, MAX_IN_CLAUSE_SIZE)));
+            } catch (Exception e) {
+                Log.e(TAG, "Error searching sets", e);
+                result.postValue(Collections.emptyList());
+            }
+        });
+        return result;
     }
 
     public void insertLegoSet(LegoSetEntity legoSet, InsertCallback callback) {
@@ -139,47 +243,131 @@ public class LegoRepository {
         });
     }
 
-    public void fetchAndCacheSets(int page, int pageSize, String theme,
-                                  Integer year, String search,
-                                  FetchCallback callback) {
-        RetrofitClient.getApiService().getLegoSets(page, pageSize, theme, year, search)
-                .enqueue(new Callback<LegoSetResponse>() {
-                    @Override
-                    public void onResponse(Call<LegoSetResponse> call, Response<LegoSetResponse> response) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            databaseWriteExecutor.execute(() -> {
-                                List<LegoSet> apiSets = response.body().getResults();
-                                List<LegoSetEntity> entities = ModelMapper.toEntityList(apiSets);
-                                for (LegoSetEntity entity : entities) {
-                                    LegoSetEntity existing = legoSetDao.getSetByNum(entity.getSetNum());
-                                    if (existing != null) {
-                                        entity.setFavorite(existing.isFavorite());
-                                    }
-                                }
-                                legoSetDao.insertAll(entities);
-                                if (callback != null) {
-                                    mainThreadHandler.post(() -> callback.onSuccess(apiSets));
-                                }
-                            });
-                        } else {
-                            if (callback != null) {
-                                callback.onError("Failed to fetch: " + response.code());
-                            }
-                        }
-                    }
+    /**
+     * Загрузить страницу каталога потоком и записать ее чанками по INGEST_CHUNK_SIZE наборов,
+     * каждый чанк — отдельная транзакция upsertCatalogPage. Полный список страницы в памяти не строится.
+     * Вызывать с фонового потока.
+     */
+    public CatalogPageResult ingestCatalogPage(Call<ResponseBody> call) throws IOException {
+        Response<ResponseBody> response = call.execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            if (response.errorBody() != null) response.errorBody().close();
+            throw new IOException("Failed to fetch: " + response.code());
+        }
 
-                    @Override
-                    public void onFailure(Call<LegoSetResponse> call, Throwable t) {
-                        if (callback != null) {
-                            callback.onError(t.getMessage());
-                        }
-                    }
+        int[] totals = new int[2]; // inserted, updated
+        List<String> unchanged = new ArrayList<>();
+        LegoSetStreamReader.PageInfo info = LegoSetStreamReader.read(response.body(),
+                Constants.INGEST_CHUNK_SIZE, chunk -> {
+                    UpsertResult result = upsertCatalogPage(chunk);
+                    totals[0] += result.inserted;
+                    totals[1] += result.updated;
+                    unchanged.addAll(result.unchangedSetNums);
                 });
+        return new CatalogPageResult(info.count, info.next,
+                new UpsertResult(totals[0], totals[1], unchanged));
     }
 
-    public interface FetchCallback {
-        void onSuccess(List<LegoSet> sets);
-        void onError(String message);
+    /**
+     * Сохранить страницу каталога одной транзакцией.
+     * Новые строки вставляются, существующие обновляются на месте (is_favorite и отзывы не трогаются),
+     * неизмененные не пишутся вовсе: их номера возвращаются в UpsertResult, чтобы подтвердить
+     * свежесть одной транзакцией в конце синхронизации (touchConfirmedSets).
+     * Вызывать с фонового потока.
+     */
+    public UpsertResult upsertCatalogPage(List<LegoSetEntity> entities) {
+        return database.runInTransaction(() -> {
+            Map<String, LegoSetEntity> incoming = new LinkedHashMap<>();
+            for (LegoSetEntity entity : entities) {
+                incoming.put(entity.getSetNum(), entity);
+            }
+
+            // Существующие строки одним запросом на чанк вместо getSetByNum на каждый набор
+            Map<String, LegoSetEntity> existing = new HashMap<>();
+            List<String> setNums = new ArrayList<>(incoming.keySet());
+            for (int from = 0; from < setNums.size(); from += MAX_IN_CLAUSE_SIZE) {
+                List<String> chunk = setNums.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, setNums.size()));
+                for (LegoSetEntity entity : legoSetDao.getSetsByNums(chunk)) {
+                    existing.put(entity.getSetNum(), entity);
+                }
+            }
+
+            List<LegoSetEntity> toInsert = new ArrayList<>();
+            List<LegoSetCatalogFields> toUpdate = new ArrayList<>();
+            List<String> unchanged = new ArrayList<>();
+            for (LegoSetEntity entity : incoming.values()) {
+                LegoSetEntity current = existing.get(entity.getSetNum());
+                if (current == null) {
+                    toInsert.add(entity);
+                } else if (current.hasSameCatalogData(entity)) {
+                    unchanged.add(entity.getSetNum());
+                } else {
+                    toUpdate.add(LegoSetCatalogFields.from(entity));
+                }
+            }
+
+            if (!toInsert.isEmpty()) legoSetDao.insertNew(toInsert);
+            if (!toUpdate.isEmpty()) legoSetDao.updateCatalogFields(toUpdate);
+            return new UpsertResult(toInsert.size(), toUpdate.size(), unchanged);
+        });
+    }
+
+    /**
+     * Отметить наборы, которые сервер вернул без изменений, как свежие (last_updated = сейчас).
+     * Все строки — одной транзакцией, поэтому PagingSource каталога инвалидируется один раз, а не на каждый чанк.
+     * Вызывать с фонового потока.
+     */
+    public void touchConfirmedSets(Collection<String> setNums) {
+        if (setNums.isEmpty()) return;
+        List<String> keys = new ArrayList<>(setNums);
+        long now = System.currentTimeMillis();
+        database.runInTransaction(() -> {
+            for (int from = 0; from < keys.size(); from += MAX_IN_CLAUSE_SIZE) {
+                legoSetDao.touchLastUpdated(keys.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, keys.size())), now);
+            }
+        });
+    }
+
+    /**
+     * Итог сохранения страницы каталога
+     */
+    public static class UpsertResult {
+        public final int inserted;
+        public final int updated;
+        public final int unchanged;
+        // Наборы, совпавшие с серверной копией (для touchConfirmedSets)
+        public final List<String> unchangedSetNums;
+
+        public UpsertResult(int inserted, int updated, List<String> unchangedSetNums) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.unchanged = unchangedSetNums.size();
+            this.unchangedSetNums = unchangedSetNums;
+        }
+
+        public boolean hasChanges() {
+            return inserted > 0 || updated > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "inserted=" + inserted + ", updated=" + updated + ", unchanged=" + unchanged;
+        }
+    }
+
+    /**
+     * Итог потоковой загрузки страницы: count и next из ответа и сумма по всем чанкам
+     */
+    public static class CatalogPageResult {
+        public final int count;
+        public final String next;
+        public final UpsertResult upserts;
+
+        public CatalogPageResult(int count, String next, UpsertResult upserts) {
+            this.count = count;
+            this.next = next;
+            this.upserts = upserts;
+        }
     }
 
     public interface FavoriteCallback {
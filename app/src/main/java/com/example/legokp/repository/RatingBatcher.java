@@ -0,0 +1,173 @@
+package com.example.legokp.repository;
+
+import android.app.Application;
+import android.util.Log;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.ReviewDao;
+import com.example.legokp.models.RatingsResponse;
+import com.example.legokp.models.SetRating;
+import com.example.legokp.network.LegoApiService;
+import com.example.legokp.network.RetrofitClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import retrofit2.Response;
+
+/**
+ * Собирает номера видимых в сетке наборов и запрашивает их рейтинги одним пакетным запросом.
+ * Запросы копятся DEBOUNCE_MS после последнего вызова (но не дольше MAX_WAIT_MS при непрерывной прокрутке).
+ * Наборы, чей серверный рейтинг моложе RATING_TTL, повторно не запрашиваются.
+ * Результат пишется в review_aggregates.remote_* одной транзакцией, сетка обновляется через Room.
+ */
+public class RatingBatcher {
+
+    private static final String TAG = "RatingBatcher";
+
+    static final long DEBOUNCE_MS = 250;
+    static final long MAX_WAIT_MS = 1_000;
+    static final long RATING_TTL = 10 * 60 * 1000; // 10 минут
+    static final int MAX_SETS_PER_REQUEST = 50;
+
+    private static volatile RatingBatcher INSTANCE;
+
+    private final RatingStore store;
+    // null — общий RetrofitClient.getApiService(), берется при первом запросе
+    private final LegoApiService api;
+    private final LongSupplier clock;
+    // Один поток: пакеты уходят последовательно, повторно запрашивать «летящие» наборы не нужно
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final Object lock = new Object();
+    private final Set<String> pending = new LinkedHashSet<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private long firstPendingAt;
+
+    public static RatingBatcher getInstance(Application application) {
+        if (INSTANCE == null) {
+            synchronized (RatingBatcher.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new RatingBatcher(application);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private RatingBatcher(Application application) {
+        this(new RoomRatingStore(AppDatabase.getDatabase(application)), null, System::currentTimeMillis);
+    }
+
+    // Для тестов: хранилище в памяти, API на MockWebServer и управляемые часы
+    RatingBatcher(RatingStore store, LegoApiService api, LongSupplier clock) {
+        this.store = store;
+        this.api = api;
+        this.clock = clock;
+    }
+
+    /**
+     * Где хранятся серверные рейтинги (review_aggregates.remote_*)
+     */
+    interface RatingStore {
+        /**
+         * @return наборы из setNums, чей серверный рейтинг получен не раньше since
+         */
+        List<String> getSetsWithFreshRemoteRating(List<String> setNums, long since);
+
+        /**
+         * Записать рейтинги одной транзакцией
+         */
+        void saveRemoteRatings(List<SetRating> ratings, long fetchedAt);
+    }
+
+    private static class RoomRatingStore implements RatingStore {
+        private final AppDatabase database;
+        private final ReviewDao reviewDao;
+
+        RoomRatingStore(AppDatabase database) {
+            this.database = database;
+            this.reviewDao = database.reviewDao();
+        }
+
+        @Override
+        public List<String> getSetsWithFreshRemoteRating(List<String> setNums, long since) {
+            return reviewDao.getSetsWithFreshRemoteRating(setNums, since);
+        }
+
+        @Override
+        public void saveRemoteRatings(List<SetRating> ratings, long fetchedAt) {
+            database.runInTransaction(() -> {
+                for (SetRating rating : ratings) {
+                    if (rating.getSetNum() == null) continue;
+                    reviewDao.ensureAggregate(rating.getSetNum());
+                    reviewDao.updateRemoteRating(rating.getSetNum(), rating.getCount(),
+                            rating.getAverageRating(), fetchedAt);
+                }
+            });
+        }
+    }
+
+    /**
+     * Добавить наборы в ближайший пакет. Можно вызывать на каждый onScrolled.
+     */
+    public void request(Collection<String> setNums) {
+        if (setNums == null || setNums.isEmpty()) return;
+        synchronized (lock) {
+            long now = clock.getAsLong();
+            if (pending.isEmpty()) {
+                firstPendingAt = now;
+            }
+            pending.addAll(setNums);
+
+            if (scheduledFlush != null) {
+                // Не откладываем бесконечно: после MAX_WAIT_MS пакет уходит по уже назначенному таймеру
+                if (now - firstPendingAt >= MAX_WAIT_MS) return;
+                scheduledFlush.cancel(false);
+            }
+            scheduledFlush = scheduler.schedule(this::flush, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        List<String> batch;
+        synchronized (lock) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            scheduledFlush = null;
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            batch.removeAll(store.getSetsWithFreshRemoteRating(batch, clock.getAsLong() - RATING_TTL));
+            for (int i = 0; i < batch.size(); i += MAX_SETS_PER_REQUEST) {
+                fetch(batch.subList(i, Math.min(i + MAX_SETS_PER_REQUEST, batch.size())));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Rating batch failed: " + e.getMessage());
+        }
+    }
+
+    private void fetch(List<String> setNums) throws Exception {
+        LegoApiService service = api != null ? api : RetrofitClient.getApiService();
+        Response<RatingsResponse> response = service
+                .getAverageRatings(String.join(",", setNums))
+                .execute();
+        RatingsResponse body = response.body();
+        if (!response.isSuccessful() || body == null || !body.isSuccess() || body.getRatings() == null) {
+            Log.w(TAG, "Failed to fetch ratings: " + response.code());
+            return;
+        }
+
+        store.saveRemoteRatings(body.getRatings(), clock.getAsLong());
+        Log.d(TAG, "Fetched ratings for " + body.getRatings().size() + " of " + setNums.size() + " sets");
+    }
+}
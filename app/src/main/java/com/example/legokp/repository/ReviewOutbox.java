@@ -0,0 +1,181 @@
+package com.example.legokp.repository;
+
+import android.app.Application;
+import android.util.Log;
+
+import com.example.legokp.database.AppDatabase;
+import com.example.legokp.database.dao.ReviewDao;
+import com.example.legokp.database.entity.ReviewEntity;
+import com.example.legokp.models.Review;
+import com.example.legokp.network.RetrofitClient;
+import com.example.legokp.utils.ModelMapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Очередь неотправленных отзывов (is_synced = 0).
+ * Отзывы читаются пачками по review_id, каждую пачку отправляет ReviewUploader: одним запросом api/reviews/batch,
+ * а если сервер его не поддерживает — по одному отзыву. Одновременно в сети не больше MAX_IN_FLIGHT пачек.
+ * Пока они загружаются, следующая пачка уже читается из БД.
+ * Принятые сервером строки помечаются одной транзакцией на пачку.
+ * У каждого отзыва есть client_id, поэтому повтор после временной ошибки (сеть, 408, 429, 5xx)
+ * с экспоненциальной задержкой не создает дублей на сервере.
+ */
+public class ReviewOutbox {
+
+    private static final String TAG = "ReviewOutbox";
+
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private static volatile ReviewOutbox INSTANCE;
+
+    private final AppDatabase database;
+    private final ReviewDao reviewDao;
+    // Один проход за раз: повторные вызовы выполняются после текущего
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final ExecutorService uploadExecutor = Executors.newFixedThreadPool(MAX_IN_FLIGHT);
+    // Создается в первом проходе (на coordinator) и помнит, поддерживает ли сервер пакетную отправку
+    private ReviewUploader uploader;
+
+    public static ReviewOutbox getInstance(Application application) {
+        if (INSTANCE == null) {
+            synchronized (ReviewOutbox.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ReviewOutbox(application);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private ReviewOutbox(Application application) {
+        database = AppDatabase.getDatabase(application);
+        reviewDao = database.reviewDao();
+    }
+
+    /**
+     * Отправить все неотправленные отзывы. Callback вызывается после завершения всех запросов.
+     */
+    public void flush(ReviewRepository.SyncCallback callback) {
+        coordinator.execute(() -> {
+            int[] counts = {0, 0}; // synced, failed
+            try {
+                runPass(counts);
+            } catch (Exception e) {
+                Log.e(TAG, "Outbox pass failed", e);
+            }
+            Log.d(TAG, "Outbox pass done: " + counts[0] + " synced, " + counts[1] + " failed");
+            if (callback != null) {
+                callback.onComplete(counts[0], counts[1]);
+            }
+        });
+    }
+
+    private void runPass(int[] counts) throws InterruptedException {
+        if (uploader == null) {
+            uploader = new ReviewUploader(RetrofitClient.getApiService());
+        }
+        Deque<PendingBatch> pending = new ArrayDeque<>();
+        long afterId = 0;
+
+        List<ReviewEntity> rows;
+        while (!(rows = reviewDao.getUnsyncedReviewsAfter(afterId, BATCH_SIZE)).isEmpty()) {
+            afterId = rows.get(rows.size() - 1).getReviewId();
+            assignClientIds(rows);
+
+            List<ReviewEntity> batchRows = rows;
+            pending.add(new PendingBatch(batchRows, uploadExecutor.submit(() -> upload(uploader, batchRows))));
+
+            while (pending.size() > MAX_IN_FLIGHT) {
+                commit(pending.poll(), counts);
+            }
+        }
+        while (!pending.isEmpty()) {
+            commit(pending.poll(), counts);
+        }
+    }
+
+    /**
+     * client_id сохраняется до первой отправки, чтобы повтор (и в следующем проходе) шел с тем же ключом
+     */
+    private void assignClientIds(List<ReviewEntity> rows) {
+        List<ReviewEntity> missing = new ArrayList<>();
+        for (ReviewEntity row : rows) {
+            if (row.getClientId() == null) missing.add(row);
+        }
+        if (missing.isEmpty()) return;
+
+        database.runInTransaction(() -> {
+            for (ReviewEntity row : missing) {
+                String clientId = UUID.randomUUID().toString();
+                if (reviewDao.assignClientId(row.getReviewId(), clientId) > 0) {
+                    row.setClientId(clientId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Дождаться пачки и пометить принятые строки одной транзакцией
+     */
+    private void commit(PendingBatch batch, int[] counts) throws InterruptedException {
+        Set<String> accepted;
+        try {
+            accepted = batch.future.get();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Batch upload failed: " + e.getCause());
+            accepted = Collections.emptySet();
+        }
+
+        List<ReviewEntity> sent = new ArrayList<>();
+        for (ReviewEntity row : batch.rows) {
+            if (row.getClientId() != null && accepted.contains(row.getClientId())) {
+                sent.add(row);
+            } else {
+                counts[1]++;
+            }
+        }
+        if (sent.isEmpty()) return;
+
+        int[] marked = {0};
+        database.runInTransaction(() -> {
+            for (ReviewEntity row : sent) {
+                // Если отзыв изменили во время отправки, он остается в очереди
+                marked[0] += reviewDao.markAsSyncedIfUnchanged(row.getReviewId(), row.getRating(), row.getComment());
+            }
+        });
+        counts[0] += marked[0];
+    }
+
+    /**
+     * Отправить пачку (ReviewUploader: api/reviews/batch или по одному отзыву)
+     */
+    private static Set<String> upload(ReviewUploader uploader, List<ReviewEntity> rows) throws InterruptedException {
+        List<Review> reviews = new ArrayList<>();
+        for (ReviewEntity row : rows) {
+            if (row.getClientId() != null) reviews.add(ModelMapper.entityToReview(row));
+        }
+        return uploader.upload(reviews);
+    }
+
+    private static class PendingBatch {
+        final List<ReviewEntity> rows;
+        final Future<Set<String>> future;
+
+        PendingBatch(List<ReviewEntity> rows, Future<Set<String>> future) {
+            this.rows = rows;
+            this.future = future;
+        }
+    }
+}
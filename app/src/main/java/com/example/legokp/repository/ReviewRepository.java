@@ -1,19 +1,34 @@
 package com.example.legokp.repository;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.core.os.HandlerCompat;
 import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
 
 import com.example.legokp.database.AppDatabase;
 import com.example.legokp.database.dao.ReviewDao;
+import com.example.legokp.database.entity.ReviewAggregateEntity;
 import com.example.legokp.database.entity.ReviewEntity;
 import com.example.legokp.models.Review;
 import com.example.legokp.models.ReviewResponse;
 import com.example.legokp.network.RetrofitClient;
 import com.example.legokp.utils.ModelMapper;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -26,11 +41,28 @@ import retrofit2.Response;
 public class ReviewRepository {
 
     private static final String TAG = "ReviewRepository";
+    // Ограничение SQLite на число параметров в IN (...)
+    private static final int MAX_IN_CLAUSE_SIZE = 500;
+    private static final int REVIEW_PAGE_SIZE = 20;
+    // Пауза после неудачной загрузки страницы с сервера: 2 с, удваивается до минуты
+    private static final long REMOTE_RETRY_BASE_MS = 2_000;
+    private static final long REMOTE_RETRY_MAX_MS = 60_000;
+    // Запросы страниц отзывов: блокирующий вызов не должен занимать потоки пула БД
+    private static final ExecutorService REMOTE_PAGE_EXECUTOR = Executors.newFixedThreadPool(2);
+
+    private AppDatabase database;
     private ReviewDao reviewDao;
+    private ReviewOutbox outbox;
 
     public ReviewRepository(Application application) {
-        AppDatabase database = AppDatabase.getDatabase(application);
-        reviewDao = database.reviewDao();
+        this(AppDatabase.getDatabase(application), ReviewOutbox.getInstance(application));
+    }
+
+    // Для тестов: БД в памяти
+    ReviewRepository(AppDatabase database, ReviewOutbox outbox) {
+        this.database = database;
+        this.reviewDao = database.reviewDao();
+        this.outbox = outbox;
     }
 
     // ========== LOCAL DATABASE OPERATIONS ==========
@@ -56,6 +88,22 @@ public class ReviewRepository {
         return reviewDao.getReviewCount(setNum);
     }
 
+    /**
+     * Получить агрегаты отзывов (количество, среднее, гистограмма) без пересчета по всей таблице
+     */
+    public LiveData<ReviewAggregateEntity> getReviewAggregate(String setNum) {
+        return reviewDao.getAggregate(setNum);
+    }
+
+    /**
+     * Снимок панели отзывов: загруженные страницы отзывов, среднее, количество и отзыв текущего пользователя.
+     * Все читается одной транзакцией и пересчитывается один раз на каждое изменение reviews.
+     * Следующие страницы подгружаются через ReviewPanelLiveData.loadMore().
+     */
+    public ReviewPanelLiveData getReviewPanel(String setNum, String userId) {
+        return new ReviewPanelLiveData(setNum, userId);
+    }
+
     /**
      * Получить топ отзывы
      */
@@ -158,10 +206,10 @@ public class ReviewRepository {
     // ========== API OPERATIONS ==========
 
     /**
-     * Загрузить отзывы с сервера
+     * Загрузить с сервера первую страницу отзывов. Следующие страницы подгружает панель отзывов (loadMore).
      */
     public void fetchReviewsFromApi(String setNum, FetchReviewsCallback callback) {
-        RetrofitClient.getApiService().getReviews(setNum)
+        RetrofitClient.getApiService().getReviewsPage(setNum, REVIEW_PAGE_SIZE, null, null)
                 .enqueue(new Callback<ReviewResponse>() {
                     @Override
                     public void onResponse(Call<ReviewResponse> call, Response<ReviewResponse> response) {
@@ -169,25 +217,22 @@ public class ReviewRepository {
                             ReviewResponse reviewResponse = response.body();
 
                             if (reviewResponse.isSuccess()) {
-                                List<Review> apiReviews = reviewResponse.getReviews();
+                                List<Review> apiReviews = reviewResponse.getReviews() != null
+                                        ? reviewResponse.getReviews() : new ArrayList<>();
 
-                                // Сохранить в БД
+                                // Сохранить в БД одной транзакцией: одно обновление LiveData на загрузку
                                 AppDatabase.databaseWriteExecutor.execute(() -> {
-                                    List<ReviewEntity> entities = ModelMapper.reviewListToEntityList(apiReviews);
-                                    reviewDao.insertAll(entities);
-
-                                    // Пометить как синхронизированные
-                                    for (ReviewEntity entity : entities) {
-                                        entity.setSynced(true);
-                                        reviewDao.update(entity);
+                                    try {
+                                        mergeServerReviews(setNum, apiReviews, null,
+                                                apiReviews.size() < REVIEW_PAGE_SIZE);
+                                    } catch (Exception e) {
+                                        Log.e(TAG, "Error caching reviews: " + e.getMessage());
                                     }
 
-                                    Log.d(TAG, "Cached " + entities.size() + " reviews");
+                                    if (callback != null) {
+                                        callback.onSuccess(apiReviews, reviewResponse.getAverageRating());
+                                    }
                                 });
-
-                                if (callback != null) {
-                                    callback.onSuccess(apiReviews, reviewResponse.getAverageRating());
-                                }
                             } else {
                                 if (callback != null) {
                                     callback.onError(reviewResponse.getMessage());
@@ -210,6 +255,72 @@ public class ReviewRepository {
                 });
     }
 
+    /**
+     * Слить страницу отзывов сервера с локальным кэшем набора.
+     * Серверные строки записываются как синхронизированные, кроме тех, что локально изменены и еще не отправлены.
+     * Синхронизированные локальные строки в диапазоне страницы, которых нет в ответе, удаляются.
+     * Диапазон: от самого старого отзыва страницы (или от начала, если это последняя страница) до before.
+     * Вызывать в фоновом потоке.
+     *
+     * @param before ключ, после которого запрашивалась страница (null для первой)
+     * @param lastPage сервер вернул неполную страницу, старше ничего нет
+     */
+    void mergeServerReviews(String setNum, List<Review> apiReviews, ReviewEntity before, boolean lastPage) {
+        List<ReviewEntity> page = ModelMapper.reviewListToEntityList(apiReviews);
+
+        long fromCreatedAt = Long.MIN_VALUE;
+        long fromReviewId = Long.MIN_VALUE;
+        if (!lastPage) {
+            for (ReviewEntity entity : page) {
+                if (fromCreatedAt == Long.MIN_VALUE || entity.getCreatedAt() < fromCreatedAt
+                        || (entity.getCreatedAt() == fromCreatedAt && entity.getReviewId() < fromReviewId)) {
+                    fromCreatedAt = entity.getCreatedAt();
+                    fromReviewId = entity.getReviewId();
+                }
+            }
+        }
+        long beforeCreatedAt = before != null ? before.getCreatedAt() : Long.MAX_VALUE;
+        long beforeReviewId = before != null ? before.getReviewId() : Long.MAX_VALUE;
+        long rangeFromCreatedAt = fromCreatedAt;
+        long rangeFromReviewId = fromReviewId;
+
+        database.runInTransaction(() -> {
+            Map<Long, ReviewEntity> local = new HashMap<>();
+            for (ReviewEntity entity : reviewDao.getReviewsInRange(setNum, rangeFromCreatedAt, rangeFromReviewId,
+                    beforeCreatedAt, beforeReviewId)) {
+                local.put(entity.getReviewId(), entity);
+            }
+
+            Set<Long> serverIds = new HashSet<>();
+            List<ReviewEntity> toWrite = new ArrayList<>();
+            for (ReviewEntity entity : page) {
+                serverIds.add(entity.getReviewId());
+                ReviewEntity existing = local.get(entity.getReviewId());
+                if (existing != null && !existing.isSynced()) {
+                    continue; // Локальная правка важнее, ее отправит очередь
+                }
+                entity.setSynced(true);
+                toWrite.add(entity);
+            }
+
+            List<Long> deleted = new ArrayList<>();
+            for (ReviewEntity entity : local.values()) {
+                if (entity.isSynced() && !serverIds.contains(entity.getReviewId())) {
+                    deleted.add(entity.getReviewId());
+                }
+            }
+
+            if (!toWrite.isEmpty()) {
+                reviewDao.upsertAll(toWrite);
+            }
+            for (int i = 0; i < deleted.size(); i += MAX_IN_CLAUSE_SIZE) {
+                reviewDao.deleteByIds(deleted.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, deleted.size())));
+            }
+            Log.d(TAG, "Merged reviews for " + setNum + ": " + toWrite.size() + " written, "
+                    + deleted.size() + " deleted");
+        });
+    }
+
     /**
      * Отправить отзыв на сервер
      */
@@ -222,12 +333,11 @@ public class ReviewRepository {
                             ReviewResponse reviewResponse = response.body();
 
                             if (reviewResponse.isSuccess()) {
-                                // Обновить локальную БД
-                                AppDatabase.databaseWriteExecutor.execute(() -> {
-                                    ReviewEntity entity = ModelMapper.reviewToEntity(review);
-                                    entity.setSynced(true);
-                                    reviewDao.update(entity);
-                                });
+                                // Пометить локальную строку по ее id (у нового отзыва без id строки еще нет)
+                                if (review.getReviewId() > 0) {
+                                    AppDatabase.databaseWriteExecutor.execute(() ->
+                                            reviewDao.markAsSynced(review.getReviewId()));
+                                }
 
                                 if (callback != null) {
                                     callback.onSuccess();
@@ -257,39 +367,290 @@ public class ReviewRepository {
     }
 
     /**
-     * Синхронизировать несинхронизированные отзывы
+     * Синхронизировать несинхронизированные отзывы.
+     * Callback получает реальные количества после завершения всех запросов.
      */
     public void syncReviews(SyncCallback callback) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            List<ReviewEntity> unsyncedReviews = reviewDao.getUnsyncedReviews();
+        outbox.flush(callback);
+    }
 
-            if (unsyncedReviews.isEmpty()) {
-                if (callback != null) {
-                    callback.onComplete(0);
+    /**
+     * Перечитывает снимок панели при инвалидации reviews / review_aggregates, пока есть активные наблюдатели.
+     * Серия инвалидаций подряд (например, слияние отзывов с сервера) дает не больше одного лишнего чтения.
+     * Чтения выполняются в общем пуле и могут перекрываться, поэтому каждое помечается поколением,
+     * взятым перед чтением: публикуется только снимок новее уже опубликованного.
+     *
+     * Отзывы грузятся страницами по ключу (created_at, review_id): снимок содержит все отзывы
+     * от самого нового до нижней границы (floor), а loadMore() опускает границу на одну страницу.
+     * Если локально страница неполная, она сначала дозагружается с сервера: запрос выполняется
+     * в REMOTE_PAGE_EXECUTOR, слияние и перечитывание — в пуле БД.
+     * После неудачной загрузки с сервера hasMore опирается только на локальные строки до конца паузы
+     * (экспоненциальной), поэтому прокрутка не повторяет запрос на каждом событии.
+     *
+     * Инвалидация только review_aggregates (например, рейтинг с сервера) перечитывает агрегат,
+     * а список отзывов берется из предыдущего снимка — тот же объект, адаптеру нечего сравнивать.
+     * Чтения одной панели выполняются по очереди (publishLock), чтобы переиспользование было согласованным.
+     */
+    public class ReviewPanelLiveData extends LiveData<ReviewPanel> {
+
+        private final String setNum;
+        private final String userId;
+        private final AtomicBoolean loadPending = new AtomicBoolean(false);
+        private final AtomicBoolean loadingMore = new AtomicBoolean(false);
+        // Растет при каждом запросе перечитывания
+        private final AtomicLong generation = new AtomicLong();
+        private final Object publishLock = new Object();
+        private long publishedGeneration = 0;
+        private boolean registered = false;
+        // Нижняя граница загруженных отзывов; null — только первая страница
+        private volatile ReviewEntity floor;
+        private volatile boolean remoteExhausted = false;
+        // До этого момента сервер не запрашивается; 0 — ошибок не было
+        private volatile long remoteRetryAt = 0;
+        private int remoteFailures = 0;
+        // Список отзывов нужно перечитать; иначе изменились только агрегаты
+        private final AtomicBoolean reviewsDirty = new AtomicBoolean(true);
+        private ReviewPanel lastRead;
+        private final Handler mainThreadHandler = HandlerCompat.createAsync(Looper.getMainLooper());
+        private final InvalidationTracker.Observer observer =
+                new InvalidationTracker.Observer(new String[]{"reviews", "review_aggregates"}) {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> tables) {
+                        if (tables.contains("reviews")) {
+                            reviewsDirty.set(true);
+                        }
+                        scheduleLoad();
+                    }
+                };
+
+        ReviewPanelLiveData(String setNum, String userId) {
+            this.setNum = setNum;
+            this.userId = userId;
+        }
+
+        @Override
+        protected void onActive() {
+            syncRegistration();
+            // Пока наблюдателей не было, инвалидации не отслеживались
+            reviewsDirty.set(true);
+            scheduleLoad();
+        }
+
+        @Override
+        protected void onInactive() {
+            syncRegistration();
+        }
+
+        /**
+         * Подгрузить следующую страницу отзывов. Повторный вызов во время загрузки игнорируется.
+         */
+        public void loadMore() {
+            ReviewPanel current = getValue();
+            if (current == null || !current.hasMore() || current.getReviews().isEmpty()) return;
+            if (!loadingMore.compareAndSet(false, true)) return;
+
+            ReviewEntity last = current.getReviews().get(current.getReviews().size() - 1);
+            AppDatabase.databaseWriteExecutor.execute(() -> {
+                boolean fetching = false;
+                try {
+                    List<ReviewEntity> next = reviewDao.getReviewsPageBefore(setNum,
+                            last.getCreatedAt(), last.getReviewId(), REVIEW_PAGE_SIZE);
+                    if (next.size() < REVIEW_PAGE_SIZE && isRemoteAvailable()) {
+                        // Запрос к серверу идет в своем пуле, в пул БД возвращается только слияние
+                        REMOTE_PAGE_EXECUTOR.execute(() -> fetchRemotePageBefore(last));
+                        fetching = true;
+                    } else {
+                        moveFloor(next);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error loading more reviews: " + e.getMessage());
+                } finally {
+                    if (!fetching) {
+                        finishLoadMore();
+                    }
                 }
-                return;
+            });
+        }
+
+        /**
+         * Выполняется в REMOTE_PAGE_EXECUTOR: запрос страницы, затем слияние и перечитывание в пуле БД
+         */
+        private void fetchRemotePageBefore(ReviewEntity last) {
+            List<Review> apiReviews = null;
+            try {
+                Response<ReviewResponse> response = RetrofitClient.getApiService()
+                        .getReviewsPage(setNum, REVIEW_PAGE_SIZE, last.getCreatedAt(), last.getReviewId())
+                        .execute();
+                ReviewResponse body = response.body();
+                if (response.isSuccessful() && body != null && body.isSuccess()) {
+                    apiReviews = body.getReviews() != null ? body.getReviews() : new ArrayList<>();
+                } else {
+                    Log.w(TAG, "Failed to fetch review page: " + response.code());
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error fetching review page: " + e.getMessage());
             }
 
-            // Отправить каждый отзыв на сервер
-            for (ReviewEntity entity : unsyncedReviews) {
-                Review review = ModelMapper.entityToReview(entity);
-                submitReviewToApi(review, new SubmitReviewCallback() {
-                    @Override
-                    public void onSuccess() {
-                        reviewDao.markAsSynced(entity.getReviewId());
+            List<Review> fetched = apiReviews;
+            AppDatabase.databaseWriteExecutor.execute(() -> {
+                try {
+                    if (fetched != null) {
+                        boolean lastPage = fetched.size() < REVIEW_PAGE_SIZE;
+                        mergeServerReviews(setNum, fetched, last, lastPage);
+                        if (lastPage) {
+                            remoteExhausted = true;
+                        }
+                        onRemoteSuccess();
+                    } else {
+                        onRemoteFailure();
                     }
+                    moveFloor(reviewDao.getReviewsPageBefore(setNum,
+                            last.getCreatedAt(), last.getReviewId(), REVIEW_PAGE_SIZE));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error merging review page: " + e.getMessage());
+                } finally {
+                    finishLoadMore();
+                }
+            });
+        }
 
-                    @Override
-                    public void onError(String message) {
-                        Log.e(TAG, "Failed to sync review: " + message);
+        private void moveFloor(List<ReviewEntity> next) {
+            if (!next.isEmpty()) {
+                floor = next.get(next.size() - 1);
+            }
+        }
+
+        private void finishLoadMore() {
+            loadingMore.set(false);
+            reviewsDirty.set(true);
+            scheduleLoad();
+        }
+
+        private boolean isRemoteAvailable() {
+            return !remoteExhausted && System.currentTimeMillis() >= remoteRetryAt;
+        }
+
+        private synchronized void onRemoteSuccess() {
+            remoteFailures = 0;
+            remoteRetryAt = 0;
+        }
+
+        /**
+         * Отложить следующий запрос к серверу. По окончании паузы снимок перечитывается,
+         * и hasMore снова разрешает подгрузку.
+         */
+        private synchronized void onRemoteFailure() {
+            long delay = Math.min(REMOTE_RETRY_MAX_MS, REMOTE_RETRY_BASE_MS << Math.min(remoteFailures, 5));
+            remoteFailures++;
+            remoteRetryAt = System.currentTimeMillis() + delay;
+            mainThreadHandler.postDelayed(this::scheduleLoad, delay);
+        }
+
+        /**
+         * addObserver/removeObserver обращаются к БД, поэтому выполняются в фоне.
+         * Состояние сверяется с hasActiveObservers(), чтобы порядок задач в пуле не имел значения.
+         */
+        private void syncRegistration() {
+            AppDatabase.databaseWriteExecutor.execute(() -> {
+                synchronized (observer) {
+                    boolean shouldObserve = hasActiveObservers();
+                    if (shouldObserve && !registered) {
+                        database.getInvalidationTracker().addObserver(observer);
+                        registered = true;
+                    } else if (!shouldObserve && registered) {
+                        database.getInvalidationTracker().removeObserver(observer);
+                        registered = false;
                     }
-                });
+                }
+            });
+        }
+
+        private void scheduleLoad() {
+            generation.incrementAndGet();
+            if (!loadPending.compareAndSet(false, true)) return;
+            AppDatabase.databaseWriteExecutor.execute(() -> {
+                // Флаг снимается до чтения, чтобы инвалидация во время чтения запустила еще одно.
+                // Поколение берется после снятия флага: чтение видит все записи до этой инвалидации
+                loadPending.set(false);
+                long readGeneration = generation.get();
+                synchronized (publishLock) {
+                    // Более новое чтение уже опубликовано — это устарело, не начавшись
+                    if (readGeneration <= publishedGeneration) return;
+                    boolean rereadReviews = reviewsDirty.getAndSet(false) || lastRead == null;
+                    try {
+                        ReviewPanel snapshot = database.runInTransaction(() -> readSnapshot(rereadReviews));
+                        lastRead = snapshot;
+                        publishedGeneration = readGeneration;
+                        postValue(snapshot);
+                    } catch (Exception e) {
+                        if (rereadReviews) reviewsDirty.set(true);
+                        Log.e(TAG, "Error loading review panel: " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        private ReviewPanel readSnapshot(boolean rereadReviews) {
+            List<ReviewEntity> reviews;
+            boolean hasMoreLocal;
+            ReviewEntity userReview;
+            if (rereadReviews) {
+                ReviewEntity bound = floor;
+                reviews = bound != null
+                        ? reviewDao.getReviewsDownTo(setNum, bound.getCreatedAt(), bound.getReviewId())
+                        : reviewDao.getLatestReviewsForSet(setNum, REVIEW_PAGE_SIZE);
+                hasMoreLocal = false;
+                if (!reviews.isEmpty()) {
+                    ReviewEntity last = reviews.get(reviews.size() - 1);
+                    hasMoreLocal = reviewDao.hasReviewsBefore(setNum, last.getCreatedAt(), last.getReviewId());
+                }
+                userReview = userId != null ? reviewDao.getUserReviewForSet(setNum, userId) : null;
+            } else {
+                reviews = lastRead.getReviews();
+                hasMoreLocal = lastRead.hasMoreLocal;
+                userReview = lastRead.getUserReview();
             }
 
-            if (callback != null) {
-                callback.onComplete(unsyncedReviews.size());
-            }
-        });
+            long retryAt = remoteRetryAt;
+            boolean remoteMore = !remoteExhausted && System.currentTimeMillis() >= retryAt;
+            boolean hasMore = !reviews.isEmpty() && (hasMoreLocal || remoteMore);
+            return new ReviewPanel(reviews, reviewDao.getAggregateSync(setNum), userReview,
+                    hasMore, hasMoreLocal, retryAt > 0);
+        }
+    }
+
+    /**
+     * Согласованный снимок панели отзывов набора
+     */
+    public static class ReviewPanel {
+        private final List<ReviewEntity> reviews;
+        private final int reviewCount;
+        private final float averageRating;
+        private final ReviewEntity userReview;
+        private final boolean hasMore;
+        private final boolean hasMoreLocal;
+        private final boolean remoteFailed;
+
+        ReviewPanel(List<ReviewEntity> reviews, ReviewAggregateEntity aggregate, ReviewEntity userReview,
+                    boolean hasMore, boolean hasMoreLocal, boolean remoteFailed) {
+            this.reviews = reviews;
+            this.reviewCount = aggregate != null ? aggregate.getReviewCount() : 0;
+            this.averageRating = aggregate != null ? (float) aggregate.getAverageRating() : 0f;
+            this.userReview = userReview;
+            this.hasMore = hasMore;
+            this.hasMoreLocal = hasMoreLocal;
+            this.remoteFailed = remoteFailed;
+        }
+
+        public List<ReviewEntity> getReviews() { return reviews; }
+        public int getReviewCount() { return reviewCount; }
+        public float getAverageRating() { return averageRating; }
+        // null, если пользователь еще не оставлял отзыв
+        public ReviewEntity getUserReview() { return userReview; }
+        // Есть ли еще отзывы ниже загруженных (локально или, возможно, на сервере)
+        public boolean hasMore() { return hasMore; }
+        // Последняя загрузка страницы с сервера не удалась, повтор — после паузы
+        public boolean isRemoteFailed() { return remoteFailed; }
     }
 
     // ========== CALLBACKS ==========
@@ -328,6 +689,6 @@ public class ReviewRepository {
     }
 
     public interface SyncCallback {
-        void onComplete(int syncedCount);
+        void onComplete(int syncedCount, int failedCount);
     }
 }
\ No newline at end of file
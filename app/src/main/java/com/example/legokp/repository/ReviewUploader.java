@@ -0,0 +1,153 @@
+package com.example.legokp.repository;
+
+import android.util.Log;
+
+import com.example.legokp.models.Review;
+import com.example.legokp.models.ReviewBatchRequest;
+import com.example.legokp.models.ReviewBatchResponse;
+import com.example.legokp.models.ReviewResponse;
+import com.example.legokp.models.ReviewSubmitResult;
+import com.example.legokp.network.LegoApiService;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Отправка одной пачки отзывов для ReviewOutbox.
+ * Пачка уходит одним запросом api/reviews/batch. Если сервер такого эндпоинта не знает (404/405),
+ * пачка и все следующие отправляются по одному отзыву через api/reviews.
+ * Временные ошибки (сеть, 408, 429, 5xx) повторяются с экспоненциальной задержкой;
+ * client_id не дает повтору создать дубль на сервере.
+ */
+class ReviewUploader {
+
+    private static final String TAG = "ReviewUploader";
+
+    static final int MAX_ATTEMPTS = 4;
+    static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 8_000;
+
+    private final LegoApiService api;
+    private final long baseBackoffMs;
+    private final Random random = new Random();
+    // Сервер без api/reviews/batch: после первого 404/405 пачки сразу идут по одному отзыву
+    private volatile boolean batchUnsupported;
+
+    ReviewUploader(LegoApiService api) {
+        this(api, BASE_BACKOFF_MS);
+    }
+
+    ReviewUploader(LegoApiService api, long baseBackoffMs) {
+        this.api = api;
+        this.baseBackoffMs = baseBackoffMs;
+    }
+
+    /**
+     * @return client_id отзывов, которые сервер принял; пустое множество при постоянной ошибке или исчерпании попыток
+     */
+    Set<String> upload(List<Review> reviews) throws InterruptedException {
+        if (reviews.isEmpty()) return Collections.emptySet();
+        if (!batchUnsupported) {
+            Response<ReviewBatchResponse> response = execute(() -> api.submitReviews(new ReviewBatchRequest(reviews)),
+                    "Batch of " + reviews.size());
+            if (response == null) return Collections.emptySet();
+            if (response.isSuccessful()) {
+                return acceptedClientIds(response.body(), reviews);
+            }
+            if (!isBatchUnsupported(response.code())) {
+                Log.w(TAG, "Batch of " + reviews.size() + " rejected: " + response.code());
+                return Collections.emptySet();
+            }
+            Log.i(TAG, "Batch endpoint unavailable (" + response.code() + "), sending reviews one by one");
+            batchUnsupported = true;
+        }
+        return uploadOneByOne(reviews);
+    }
+
+    private Set<String> uploadOneByOne(List<Review> reviews) throws InterruptedException {
+        Set<String> accepted = new HashSet<>();
+        for (Review review : reviews) {
+            Response<ReviewResponse> response = execute(() -> api.submitReview(review),
+                    "Review " + review.getClientId());
+            if (response == null) continue;
+            ReviewResponse body = response.body();
+            if (response.isSuccessful() && body != null && body.isSuccess()) {
+                accepted.add(review.getClientId());
+            } else {
+                Log.w(TAG, "Review " + review.getClientId() + " rejected: " + response.code());
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Выполнить запрос с повторами временных ошибок
+     * @return последний ответ (успешный или с постоянной ошибкой); null, если попытки кончились
+     */
+    private <T> Response<T> execute(CallFactory<T> calls, String what) throws InterruptedException {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(backoff(attempt));
+            }
+            try {
+                Response<T> response = calls.newCall().execute();
+                if (response.isSuccessful() || !isRetryable(response.code())) {
+                    return response;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, what + " attempt " + (attempt + 1) + " failed: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> acceptedClientIds(ReviewBatchResponse body, List<Review> reviews) {
+        Set<String> accepted = new HashSet<>();
+        if (body == null) return accepted;
+        if (body.getResults() == null) {
+            // Без результатов по отдельным отзывам успех относится ко всей пачке
+            if (body.isSuccess()) {
+                for (Review review : reviews) accepted.add(review.getClientId());
+            }
+            return accepted;
+        }
+        for (ReviewSubmitResult result : body.getResults()) {
+            if (result.isSuccess() && result.getClientId() != null) {
+                accepted.add(result.getClientId());
+            } else {
+                Log.w(TAG, "Review " + result.getClientId() + " rejected: " + result.getMessage());
+            }
+        }
+        return accepted;
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == 408 || code == 429 || code >= 500;
+    }
+
+    private static boolean isBatchUnsupported(int code) {
+        return code == 404 || code == 405;
+    }
+
+    private long backoff(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, baseBackoffMs << (attempt - 1));
+        // Разброс, чтобы параллельные повторы не приходили на сервер одновременно
+        synchronized (random) {
+            return delay / 2 + (long) (random.nextDouble() * delay / 2);
+        }
+    }
+
+    /**
+     * Retrofit Call выполняется один раз, поэтому каждая попытка создает новый
+     */
+    private interface CallFactory<T> {
+        Call<T> newCall();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.legokp.ui;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+
+import com.example.legokp.R;
+import com.example.legokp.image.ImageMetrics;
+import com.example.legokp.network.NetworkMetrics;
+import com.example.legokp.network.RetrofitClient;
+import com.example.legokp.network.WireFormat;
+
+/**
+ * Отладочный экран: метрики сетевых вызовов по эндпоинтам, HTTP-кэш, форматы ответов и загрузка картинок по экранам.
+ * Открывается из профиля только в debug-сборке.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private TextView tvDiagnostics;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        tvDiagnostics = findViewById(R.id.tvDiagnostics);
+        Button btnRefresh = findViewById(R.id.btnRefresh);
+        Button btnReset = findViewById(R.id.btnReset);
+
+        btnRefresh.setOnClickListener(v -> render());
+        btnReset.setOnClickListener(v -> {
+            NetworkMetrics.reset();
+            ImageMetrics.reset();
+            render();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        render();
+    }
+
+    private void render() {
+        String text = "HTTP cache\n  " + RetrofitClient.getCacheStats() + "\n\n"
+                + "Resilience\n  " + RetrofitClient.getResilienceStats() + "\n\n"
+                + "Wire format\n  " + WireFormat.getStats() + "\n\n"
+                + "Endpoints\n" + NetworkMetrics.snapshot().dump() + "\n"
+                + "Images\n" + ImageMetrics.snapshot().dump();
+        tvDiagnostics.setText(text);
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        onBackPressed();
+        return true;
+    }
+}
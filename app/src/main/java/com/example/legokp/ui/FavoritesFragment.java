@@ -17,12 +17,11 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.legokp.R;
 import com.example.legokp.adapter.LegoSetAdapter;
+import com.example.legokp.image.ImageMetrics;
 import com.example.legokp.models.LegoSet;
-import com.example.legokp.utils.ModelMapper;
+import com.example.legokp.utils.Constants;
 import com.example.legokp.viewmodels.LegoViewModel;
 
-import java.util.List;
-
 public class FavoritesFragment extends Fragment {
 
     private RecyclerView rvFavorites;
@@ -52,18 +51,18 @@ public class FavoritesFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        rvFavorites.setLayoutManager(new GridLayoutManager(getContext(), 2));
-        adapter = new LegoSetAdapter(getContext(), this::toggleFavorite, null);
+        rvFavorites.setLayoutManager(new GridLayoutManager(getContext(), Constants.GRID_SPAN_COUNT));
+        adapter = new LegoSetAdapter(getContext(), ImageMetrics.SCREEN_FAVORITES, this::toggleFavorite, null);
         rvFavorites.setAdapter(adapter);
     }
 
     private void setupObservers() {
-        viewModel.getFavoriteSets().observe(getViewLifecycleOwner(), legoSetEntities -> {
-            if (legoSetEntities != null) {
-                List<LegoSet> sets = ModelMapper.toModelList(legoSetEntities);
-                // ✨ ИСПРАВЛЕНО: Используем submitList вместо updateSets
-                adapter.submitList(sets);
-                showEmptyState(sets.isEmpty());
+        viewModel.getFavoriteSets().observe(getViewLifecycleOwner(), pagingData ->
+                adapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData));
+
+        viewModel.getFavoriteCountLive().observe(getViewLifecycleOwner(), count -> {
+            if (count != null) {
+                showEmptyState(count == 0);
             }
         });
     }
@@ -2,6 +2,7 @@ package com.example.legokp.ui;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -10,13 +11,14 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
+import com.example.legokp.BuildConfig;
 import com.example.legokp.R;
 import com.example.legokp.utils.SessionManager;
 
 public class ProfileActivity extends AppCompatActivity {
 
     private TextView tvUsername, tvEmail;
-    private Button btnEditProfile, btnChangePassword, btnLogout;
+    private Button btnEditProfile, btnChangePassword, btnDiagnostics, btnLogout;
     private SessionManager sessionManager;
 
     @Override
@@ -42,6 +44,7 @@ public class ProfileActivity extends AppCompatActivity {
         tvEmail = findViewById(R.id.tvEmail);
         btnEditProfile = findViewById(R.id.btnEditProfile);
         btnChangePassword = findViewById(R.id.btnChangePassword);
+        btnDiagnostics = findViewById(R.id.btnDiagnostics);
         btnLogout = findViewById(R.id.btnLogout);
     }
 
@@ -54,6 +57,12 @@ public class ProfileActivity extends AppCompatActivity {
             Toast.makeText(this, "Change Password Clicked", Toast.LENGTH_SHORT).show();
         });
 
+        // Экран метрик только в debug-сборке
+        if (BuildConfig.DEBUG) {
+            btnDiagnostics.setVisibility(View.VISIBLE);
+            btnDiagnostics.setOnClickListener(v -> startActivity(new Intent(this, DiagnosticsActivity.class)));
+        }
+
         btnLogout.setOnClickListener(v -> {
             showLogoutDialog();
         });
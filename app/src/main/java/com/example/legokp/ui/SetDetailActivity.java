@@ -14,6 +14,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.widget.NestedScrollView;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -22,13 +23,18 @@ import com.bumptech.glide.Glide;
 import com.example.legokp.R;
 import com.example.legokp.adapter.ReviewAdapter;
 import com.example.legokp.database.entity.ReviewEntity;
+import com.example.legokp.image.FavoriteImageStore;
+import com.example.legokp.image.ImageMetrics;
+import com.example.legokp.image.ImageRequests;
 import com.example.legokp.models.FavoriteRequest;
 import com.example.legokp.models.FavoriteResponse;
 import com.example.legokp.network.RetrofitClient;
+import com.example.legokp.repository.ReviewRepository;
 import com.example.legokp.utils.SessionManager;
 import com.example.legokp.viewmodels.ReviewViewModel;
 import com.google.android.material.button.MaterialButton;
 
+import java.util.List;
 import java.util.Locale;
 
 import retrofit2.Call;
@@ -46,16 +52,22 @@ public class SetDetailActivity extends AppCompatActivity {
     private ReviewAdapter reviewAdapter;
     private TextView tvReviewCount, tvAverageRating, tvNoReviews;
     private LinearLayout layoutReviewsSection;
+    private NestedScrollView scrollView;
     private ProgressBar progressBarReviews;
 
     private ReviewViewModel reviewViewModel;
     private SessionManager sessionManager;
+    private ReviewRepository.ReviewPanel reviewPanel;
+    // Нажатие "Написать отзыв" до первого снимка панели: диалог откроется, когда снимок придет
+    private boolean reviewDialogPending = false;
 
     private String setNum;
     private boolean isFavorite;
     private boolean isUpdatingFavorite = false;
 
     private static final String TAG = "SetDetailActivity";
+    // За сколько пикселей до конца прокрутки подгружать следующую страницу отзывов
+    private static final int LOAD_MORE_THRESHOLD_PX = 600;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -98,6 +110,7 @@ public class SetDetailActivity extends AppCompatActivity {
         tvAverageRating = findViewById(R.id.tvAverageRating);
         tvNoReviews = findViewById(R.id.tvNoReviews);
         layoutReviewsSection = findViewById(R.id.layoutReviewsSection);
+        scrollView = findViewById(R.id.scrollView);
         progressBarReviews = findViewById(R.id.progressBarReviews);
 
         setupReviewsRecyclerView();
@@ -118,6 +131,16 @@ public class SetDetailActivity extends AppCompatActivity {
             }
         });
         rvReviews.setAdapter(reviewAdapter);
+
+        // RecyclerView внутри NestedScrollView не прокручивается сам, поэтому конец списка ловим по скроллу контейнера
+        scrollView.setOnScrollChangeListener((NestedScrollView.OnScrollChangeListener)
+                (v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+                    View content = v.getChildAt(0);
+                    int distanceToBottom = content.getBottom() - (v.getHeight() + scrollY);
+                    if (distanceToBottom < LOAD_MORE_THRESHOLD_PX && reviewPanel != null && reviewPanel.hasMore()) {
+                        reviewViewModel.loadMoreReviews();
+                    }
+                });
     }
 
     private void loadData() {
@@ -145,10 +168,17 @@ public class SetDetailActivity extends AppCompatActivity {
         tvTheme.setText("Theme: " + theme);
         tvYear.setText("Year: " + year);
 
+        // Сначала миниатюра из сетки (только из кэша, те же ключи), затем полное изображение.
+        // Для избранного модель — закрепленный файл, как и в сетке
+        Object imageModel = FavoriteImageStore.getInstance(this).resolve(imageUrl);
         Glide.with(this)
-                .load(imageUrl)
-                .placeholder(R.drawable.ic_lego_placeholder)
-                .error(R.drawable.ic_lego_placeholder)
+                .load(imageModel)
+                .apply(ImageRequests.detail())
+                .listener(ImageMetrics.listener(ImageMetrics.SCREEN_SET_DETAIL))
+                .thumbnail(Glide.with(this)
+                        .load(imageModel)
+                        .apply(ImageRequests.cachedGridThumbnail(this))
+                        .listener(ImageMetrics.listener(ImageMetrics.SCREEN_SET_DETAIL_THUMBNAIL)))
                 .into(ivSetImage);
 
         updateFavoriteIcon();
@@ -158,35 +188,40 @@ public class SetDetailActivity extends AppCompatActivity {
     private void loadReviews() {
         if (setNum == null) return;
         showReviewsLoading(true);
-        reviewViewModel.getReviewsForSet(setNum).observe(this, reviews -> {
+        reviewViewModel.getReviewPanel(setNum, sessionManager.getUserId()).observe(this, panel -> {
             showReviewsLoading(false);
-            if (reviews != null && !reviews.isEmpty()) {
-                reviewAdapter.updateReviews(reviews);
-                tvNoReviews.setVisibility(View.GONE);
-                rvReviews.setVisibility(View.VISIBLE);
-            } else {
-                tvNoReviews.setVisibility(View.VISIBLE);
-                rvReviews.setVisibility(View.GONE);
-            }
-        });
-        reviewViewModel.getAverageRating(setNum).observe(this, avgRating -> {
-            if (avgRating != null && avgRating > 0) {
-                tvAverageRating.setText(String.format(Locale.US, "⭐ %.1f", avgRating));
-            } else {
-                tvAverageRating.setText("⭐ No ratings yet");
-            }
-        });
-        reviewViewModel.getReviewCount(setNum).observe(this, count -> {
-            if (count != null && count > 0) {
-                String reviewText = count == 1 ? "review" : "reviews";
-                tvReviewCount.setText(count + " " + reviewText);
-            } else {
-                tvReviewCount.setText("0 reviews");
+            reviewPanel = panel;
+            bindReviewPanel(panel);
+            if (reviewDialogPending) {
+                reviewDialogPending = false;
+                checkAndOpenReviewDialog();
             }
         });
         reviewViewModel.fetchReviewsFromApi(setNum);
     }
 
+    private void bindReviewPanel(ReviewRepository.ReviewPanel panel) {
+        List<ReviewEntity> reviews = panel.getReviews();
+        if (reviews != null && !reviews.isEmpty()) {
+            reviewAdapter.updateReviews(reviews);
+            tvNoReviews.setVisibility(View.GONE);
+            rvReviews.setVisibility(View.VISIBLE);
+        } else {
+            tvNoReviews.setVisibility(View.VISIBLE);
+            rvReviews.setVisibility(View.GONE);
+        }
+
+        int count = panel.getReviewCount();
+        if (count > 0) {
+            tvAverageRating.setText(String.format(Locale.US, "⭐ %.1f", panel.getAverageRating()));
+            String reviewText = count == 1 ? "review" : "reviews";
+            tvReviewCount.setText(count + " " + reviewText);
+        } else {
+            tvAverageRating.setText("⭐ No ratings yet");
+            tvReviewCount.setText("0 reviews");
+        }
+    }
+
     private void setupListeners() {
         btnFavorite.setOnClickListener(v -> {
             if (!isUpdatingFavorite) {
@@ -217,22 +252,18 @@ public class SetDetailActivity extends AppCompatActivity {
     }
 
     private void checkAndOpenReviewDialog() {
-        String userId = sessionManager.getUserId();
-        reviewViewModel.checkUserReview(setNum, userId, hasReviewed -> {
-            runOnUiThread(() -> {
-                if (hasReviewed) {
-                    reviewViewModel.getUserReview(setNum, userId, review -> {
-                        runOnUiThread(() -> {
-                            if (review != null) {
-                                openEditReviewDialog(review);
-                            }
-                        });
-                    });
-                } else {
-                    openAddReviewDialog();
-                }
-            });
-        });
+        // Отзыв пользователя уже есть в снимке панели, отдельный запрос к БД не нужен
+        if (reviewPanel == null) {
+            reviewDialogPending = true;
+            showReviewsLoading(true);
+            return;
+        }
+        ReviewEntity userReview = reviewPanel.getUserReview();
+        if (userReview != null) {
+            openEditReviewDialog(userReview);
+        } else {
+            openAddReviewDialog();
+        }
     }
 
     private void openAddReviewDialog() {
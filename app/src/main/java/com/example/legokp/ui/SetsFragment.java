@@ -21,13 +21,17 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.legokp.R;
 import com.example.legokp.adapter.LegoSetAdapter;
 import com.example.legokp.adapter.ThemeAdapter;
+import com.example.legokp.image.ImageMetrics;
+import com.example.legokp.image.SetThumbnailPreloader;
 import com.example.legokp.models.LegoSet;
 import com.example.legokp.models.ThemeResponse;
 import com.example.legokp.network.RetrofitClient;
-import com.example.legokp.utils.ModelMapper;
+import com.example.legokp.repository.CatalogSyncManager;
+import com.example.legokp.utils.Constants;
 import com.example.legokp.viewmodels.LegoViewModel;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import retrofit2.Call;
@@ -78,9 +82,19 @@ public class SetsFragment extends Fragment {
     }
 
     private void setupRecyclerViews() {
-        rvSets.setLayoutManager(new GridLayoutManager(getContext(), 2));
-        setAdapter = new LegoSetAdapter(getContext(), this::toggleFavorite, this::deleteLegoSet);
+        rvSets.setLayoutManager(new GridLayoutManager(getContext(), Constants.GRID_SPAN_COUNT));
+        setAdapter = new LegoSetAdapter(getContext(), ImageMetrics.SCREEN_SETS, this::toggleFavorite,
+                this::deleteLegoSet);
         rvSets.setAdapter(setAdapter);
+        // Миниатюры следующих рядов греются в кэше Glide заранее
+        SetThumbnailPreloader.attach(rvSets, setAdapter);
+        // onScrolled вызывается и после перерасчета разметки (dx = dy = 0), так что новые данные тоже попадут сюда
+        rvSets.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                requestVisibleRatings();
+            }
+        });
 
         rvThemes.setLayoutManager(new LinearLayoutManager(getContext(), LinearLayoutManager.HORIZONTAL, false));
         themeAdapter = new ThemeAdapter(getContext(), (theme, position) -> {
@@ -90,19 +104,41 @@ public class SetsFragment extends Fragment {
         rvThemes.setAdapter(themeAdapter);
     }
 
+    /**
+     * Передать видимые наборы в пакетный запрос рейтингов (debounce — в репозитории)
+     */
+    private void requestVisibleRatings() {
+        GridLayoutManager layoutManager = (GridLayoutManager) rvSets.getLayoutManager();
+        if (layoutManager == null) return;
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+
+        List<String> setNums = new ArrayList<>();
+        for (int position = first; position <= last; position++) {
+            LegoSet set = setAdapter.peek(position); // peek не запускает подгрузку страниц
+            if (set != null) setNums.add(set.getSetNum());
+        }
+        viewModel.requestRatings(setNums);
+    }
+
     private void setupObservers() {
-        viewModel.getFilteredSets().observe(getViewLifecycleOwner(), legoSetEntities -> {
-            if (legoSetEntities != null) {
-                List<LegoSet> sets = ModelMapper.toModelList(legoSetEntities);
-                setAdapter.submitList(sets);
-                if (getActivity() != null) {
-                    getActivity().setTitle(sets.size() + " sets found");
-                }
+        viewModel.getFilteredSets().observe(getViewLifecycleOwner(), pagingData ->
+                setAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData));
+
+        viewModel.getFilteredSetCount().observe(getViewLifecycleOwner(), count -> {
+            if (count != null && getActivity() != null) {
+                getActivity().setTitle(count + " sets found");
             }
         });
 
-        viewModel.getIsLoading().observe(getViewLifecycleOwner(), this::showLoading);
-        viewModel.getErrorMessage().observe(getViewLifecycleOwner(), this::showError);
+        viewModel.getSyncProgress().observe(getViewLifecycleOwner(), progress -> {
+            if (progress == null) return;
+            showLoading(progress.isRunning());
+            if (progress.state == CatalogSyncManager.SyncProgress.State.FAILED && progress.error != null) {
+                showError("Sync failed: " + progress.error);
+            }
+        });
     }
 
     private void setupSearchView() {
@@ -16,6 +16,16 @@ public class Constants {
     // Page size
     public static final int PAGE_SIZE = 20;
 
+    // Колонок в сетке наборов (от этого зависит размер миниатюр, см. ImageRequests)
+    public static final int GRID_SPAN_COUNT = 2;
+
+    // Catalog sync (отдельный файл, чтобы clearSession не сбрасывал прогресс синхронизации)
+    public static final String SYNC_PREF_NAME = "LegoKP_CatalogSync";
+    public static final int SYNC_PAGE_SIZE = 200;
+    public static final int SYNC_MAX_PARALLEL_PAGES = 4;
+    // Сколько наборов из потока страницы записывать одной транзакцией
+    public static final int INGEST_CHUNK_SIZE = 50;
+
     // Cache expiration (24 hours)
     public static final long CACHE_EXPIRATION = 24 * 60 * 60 * 1000;
 }
\ No newline at end of file
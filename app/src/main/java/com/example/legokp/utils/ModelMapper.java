@@ -87,6 +87,7 @@ public class ModelMapper {
         entity.setReviewId(review.getReviewId());
         entity.setCreatedAt(review.getCreatedAt());
         entity.setSynced(review.isSynced());
+        entity.setClientId(review.getClientId());
         return entity;
     }
 
@@ -103,6 +104,7 @@ public class ModelMapper {
         review.setComment(entity.getComment());
         review.setCreatedAt(entity.getCreatedAt());
         review.setSynced(entity.isSynced());
+        review.setClientId(entity.getClientId());
         return review;
     }
 
@@ -1,31 +1,32 @@
 package com.example.legokp.viewmodels;
 
 import android.app.Application;
-import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
+import com.example.legokp.database.CatalogQueryBuilder;
 import com.example.legokp.database.entity.LegoSetEntity;
 import com.example.legokp.models.LegoSet;
+import com.example.legokp.repository.CatalogSyncManager;
 import com.example.legokp.repository.LegoRepository;
 import com.example.legokp.ui.FilterBottomSheetFragment;
 import com.example.legokp.utils.ModelMapper;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
 public class LegoViewModel extends AndroidViewModel {
 
     private final LegoRepository repository;
-    private final LiveData<List<LegoSetEntity>> favoriteSets;
-    private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
-    private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
+    private final CatalogSyncManager syncManager;
+    private final LiveData<PagingData<LegoSet>> favoriteSets;
+    private final LiveData<Integer> favoriteCount;
 
     // --- ✨ РЕАКТИВНАЯ СИСТЕМА ФИЛЬТРАЦИИ (ПОЛНАЯ ВЕРСИЯ) --- //
 
@@ -50,74 +51,51 @@ public class LegoViewModel extends AndroidViewModel {
             newOptions.maxParts = this.maxParts;
             return newOptions;
         }
+
+        CatalogQueryBuilder toQueryBuilder() {
+            return new CatalogQueryBuilder()
+                    .query(query)
+                    .theme(theme)
+                    .yearRange(minYear, maxYear)
+                    .partsRange(minParts, maxParts)
+                    .sortBy(sortBy);
+        }
     }
 
     private final MutableLiveData<FilterOptions> filters = new MutableLiveData<>(new FilterOptions());
-    private final MediatorLiveData<List<LegoSetEntity>> filteredSets = new MediatorLiveData<>();
+    private final LiveData<PagingData<LegoSet>> filteredSets;
+    private final LiveData<Integer> filteredSetCount;
 
     public LegoViewModel(@NonNull Application application) {
-        super(application);
-        repository = new LegoRepository(application);
-        favoriteSets = repository.getFavoriteSets();
-
-        LiveData<List<LegoSetEntity>> allSetsFromDb = repository.getAllSets();
-
-        filteredSets.addSource(allSetsFromDb, entities -> {
-            if (entities != null && entities.isEmpty()) {
-                fetchSetsFromApi(1, 200, null, null, null);
-            }
-            filteredSets.setValue(applyFilters(entities, filters.getValue()));
-        });
-
-        filteredSets.addSource(filters, filterOptions -> {
-            filteredSets.setValue(applyFilters(allSetsFromDb.getValue(), filterOptions));
-        });
-    }
-
-    private List<LegoSetEntity> applyFilters(List<LegoSetEntity> entities, FilterOptions options) {
-        if (entities == null || options == null) return new ArrayList<>();
-        
-        List<LegoSetEntity> filteredList = new ArrayList<>(entities);
-
-        // 1. Поиск по названию
-        if (!TextUtils.isEmpty(options.query)) {
-            filteredList.removeIf(set -> set.getName() == null || !set.getName().toLowerCase().contains(options.query.toLowerCase()));
-        }
-
-        // 2. Фильтр по теме
-        if (!TextUtils.isEmpty(options.theme)) {
-            filteredList.removeIf(set -> set.getTheme() == null || !set.getTheme().toLowerCase().contains(options.theme.toLowerCase()));
-        }
+        this(application, new LegoRepository(application), CatalogSyncManager.getInstance(application));
 
-        // 3. Фильтр по году
-        filteredList.removeIf(set -> set.getYear() < options.minYear || set.getYear() > options.maxYear);
-        
-        // 4. Фильтр по количеству деталей
-        filteredList.removeIf(set -> set.getNumParts() < options.minParts || set.getNumParts() > options.maxParts);
-
-        // 5. Сортировка
-        sortSets(filteredList, options.sortBy);
-
-        return filteredList;
+        // Полная загрузка каталога в фоне (продолжается с места остановки после перезапуска)
+        syncManager.syncIfNeeded();
+        repository.revalidateStaleSets();
     }
 
-    private void sortSets(List<LegoSetEntity> sets, String sortBy) {
-        switch (sortBy) {
-            case "name_desc": sets.sort((a, b) -> b.getName().compareToIgnoreCase(a.getName())); break;
-            case "price_asc": sets.sort(Comparator.comparingDouble(LegoSetEntity::getPrice)); break;
-            case "price_desc": sets.sort((a, b) -> Double.compare(b.getPrice(), a.getPrice())); break;
-            case "rating_desc": sets.sort((a, b) -> Double.compare(b.getRating(), a.getRating())); break;
-            case "year_desc": sets.sort((a, b) -> Integer.compare(b.getYear(), a.getYear())); break;
-            case "year_asc": sets.sort(Comparator.comparingInt(LegoSetEntity::getYear)); break;
-            case "parts_desc": sets.sort((a, b) -> Integer.compare(b.getNumParts(), a.getNumParts())); break;
-            case "parts_asc": sets.sort(Comparator.comparingInt(LegoSetEntity::getNumParts)); break;
-            default: sets.sort(Comparator.comparing(LegoSetEntity::getName, String.CASE_INSENSITIVE_ORDER)); break;
-        }
+    /**
+     * Только связывает LiveData с репозиторием, синхронизацию не запускает (в тестах — репозиторий над БД в памяти)
+     */
+    LegoViewModel(@NonNull Application application, LegoRepository repository, CatalogSyncManager syncManager) {
+        super(application);
+        this.repository = repository;
+        this.syncManager = syncManager;
+        favoriteSets = PagingLiveData.cachedIn(repository.getFavoriteSetsPaged(), this);
+        favoriteCount = repository.getFavoriteCountLive();
+
+        // Фильтрация и сортировка выполняются в SQLite на executor'е Room, строки читаются окнами.
+        // switchMap отписывается от запроса со старыми FilterOptions, поэтому публикуется только последний результат.
+        filteredSets = PagingLiveData.cachedIn(Transformations.switchMap(filters,
+                filterOptions -> repository.getFilteredSetsPaged(filterOptions.toQueryBuilder().build())), this);
+        filteredSetCount = Transformations.switchMap(filters,
+                filterOptions -> repository.getFilteredSetCount(filterOptions.toQueryBuilder().buildCount()));
     }
 
     // --- ПУБЛИЧНЫЕ МЕТОДЫ ДЛЯ UI --- //
 
-    public LiveData<List<LegoSetEntity>> getFilteredSets() { return filteredSets; }
+    public LiveData<PagingData<LegoSet>> getFilteredSets() { return filteredSets; }
+    public LiveData<Integer> getFilteredSetCount() { return filteredSetCount; }
 
     public void setSearchQuery(String query) {
         FilterOptions oldOptions = filters.getValue();
@@ -166,17 +144,6 @@ public class LegoViewModel extends AndroidViewModel {
     public interface DeleteResultCallback { void onResult(String error); }
     public interface CountCallback { void onCount(int count); }
 
-    public void fetchSetsFromApi(int page, int pageSize, String theme, Integer year, String search) {
-        isLoading.setValue(true);
-        repository.fetchAndCacheSets(page, pageSize, theme, year, search, new LegoRepository.FetchCallback() {
-            @Override public void onSuccess(List<LegoSet> sets) { isLoading.postValue(false); }
-            @Override public void onError(String message) { 
-                isLoading.postValue(false);
-                errorMessage.postValue(message);
-            }
-        });
-    }
-
     public void toggleFavorite(String setNum, FavoriteResultCallback callback) {
         repository.toggleFavorite(setNum, new LegoRepository.FavoriteCallback() {
             @Override public void onSuccess(boolean isFavorite) { if (callback != null) callback.onResult(isFavorite, null); }
@@ -203,7 +170,12 @@ public class LegoViewModel extends AndroidViewModel {
     public void getFavoriteCount(CountCallback callback) { repository.getFavoriteCount(callback::onCount); }
     public void getTotalSetsCount(CountCallback callback) { repository.getTotalSetsCount(callback::onCount); }
 
-    public LiveData<List<LegoSetEntity>> getFavoriteSets() { return favoriteSets; }
-    public LiveData<Boolean> getIsLoading() { return isLoading; }
-    public LiveData<String> getErrorMessage() { return errorMessage; }
+    public LiveData<PagingData<LegoSet>> getFavoriteSets() { return favoriteSets; }
+    public LiveData<Integer> getFavoriteCountLive() { return favoriteCount; }
+    /**
+     * Наборы, видимые в сетке: их рейтинги будут запрошены одним пакетом
+     */
+    public void requestRatings(List<String> setNums) { repository.requestRatings(setNums); }
+
+    public LiveData<CatalogSyncManager.SyncProgress> getSyncProgress() { return syncManager.getProgress(); }
 }
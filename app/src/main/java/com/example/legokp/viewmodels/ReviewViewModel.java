@@ -7,6 +7,7 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.legokp.database.entity.ReviewAggregateEntity;
 import com.example.legokp.database.entity.ReviewEntity;
 import com.example.legokp.models.Review;
 import com.example.legokp.repository.ReviewRepository;
@@ -19,6 +20,7 @@ import java.util.List;
 public class ReviewViewModel extends AndroidViewModel {
 
     private ReviewRepository repository;
+    private ReviewRepository.ReviewPanelLiveData reviewPanel;
 
     // LiveData для UI
     private MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
@@ -54,6 +56,33 @@ public class ReviewViewModel extends AndroidViewModel {
         return repository.getReviewCount(setNum);
     }
 
+    /**
+     * Получить агрегаты отзывов (количество, среднее, гистограмма) без пересчета по всей таблице
+     */
+    public LiveData<ReviewAggregateEntity> getReviewAggregate(String setNum) {
+        return repository.getReviewAggregate(setNum);
+    }
+
+    /**
+     * Панель отзывов одним снимком (отзывы, среднее, количество, отзыв пользователя).
+     * Один источник на ViewModel, чтобы загруженные страницы переживали пересоздание Activity.
+     */
+    public LiveData<ReviewRepository.ReviewPanel> getReviewPanel(String setNum, String userId) {
+        if (reviewPanel == null) {
+            reviewPanel = repository.getReviewPanel(setNum, userId);
+        }
+        return reviewPanel;
+    }
+
+    /**
+     * Подгрузить следующую страницу отзывов в панель
+     */
+    public void loadMoreReviews() {
+        if (reviewPanel != null) {
+            reviewPanel.loadMore();
+        }
+    }
+
     /**
      * Получить топ отзывы
      */
@@ -79,19 +108,8 @@ public class ReviewViewModel extends AndroidViewModel {
                 successMessage.postValue("Review added successfully!");
                 operationComplete.postValue(true);
 
-                // Отправить на сервер
-                Review apiReview = new Review(setNum, userId, username, rating, comment);
-                repository.submitReviewToApi(apiReview, new ReviewRepository.SubmitReviewCallback() {
-                    @Override
-                    public void onSuccess() {
-                        // Синхронизировано
-                    }
-
-                    @Override
-                    public void onError(String message) {
-                        // Будет синхронизировано позже
-                    }
-                });
+                // Отправить на сервер через очередь; при ошибке отзыв останется в ней до следующей синхронизации
+                repository.syncReviews(null);
             }
 
             @Override
@@ -192,10 +210,13 @@ public class ReviewViewModel extends AndroidViewModel {
      * Синхронизировать отзывы
      */
     public void syncReviews() {
-        repository.syncReviews(syncedCount -> {
+        repository.syncReviews((syncedCount, failedCount) -> {
             if (syncedCount > 0) {
                 successMessage.postValue(syncedCount + " reviews synced");
             }
+            if (failedCount > 0) {
+                errorMessage.postValue(failedCount + " reviews failed to sync");
+            }
         });
     }
 
@@ -0,0 +1,81 @@
+package com.example.legokp.database;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FtsQueryTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void wordsBecomePrefixesInAnyColumn() {
+        assertEquals("star* war*", FtsQuery.prefix("Star  War"));
+        assertNull(FtsQuery.prefix(" - "));
+    }
+
+    @Test
+    public void wordsBecomeColumnPrefixes() {
+        assertEquals("name:star* name:war*", FtsQuery.prefixInColumn("star war", "name"));
+    }
+
+    @Test
+    public void caseIsFoldedForAnyAlphabet() {
+        assertEquals("name:звёздный* name:x* name:wing*", FtsQuery.prefixInColumn("ЗВЁЗДНЫЙ X-Wing", "name"));
+    }
+
+    @Test
+    public void ftsSyntaxIsDropped() {
+        // Кавычки, операторы-символы и * не попадают в MATCH
+        assertEquals("name:star* name:wars*", FtsQuery.prefixInColumn("\"star\" -wars*", "name"));
+        assertEquals("name:a* name:b*", FtsQuery.prefixInColumn("a:b", "name"));
+    }
+
+    @Test
+    public void operatorWordsAreLowercased() {
+        // OR, AND, NOT, NEAR — операторы только в верхнем регистре
+        assertEquals("name:star* name:or* name:not*", FtsQuery.prefixInColumn("star OR NOT", "name"));
+    }
+
+    @Test
+    public void inputWithoutWordsGivesNull() {
+        assertNull(FtsQuery.prefixInColumn(null, "name"));
+        assertNull(FtsQuery.prefixInColumn("", "name"));
+        assertNull(FtsQuery.prefixInColumn(" %_* - ", "name"));
+    }
+
+    @Test
+    public void rankWeighsColumnsAndRarity() {
+        // 1 слово, 3 колонки (name, theme, description): {в этой строке, во всех строках, строк с совпадением}
+        byte[] nameHit = matchInfo(1, 3, 1, 4, 4, 0, 2, 2, 0, 1, 1);
+        byte[] themeHit = matchInfo(1, 3, 0, 4, 4, 1, 2, 2, 0, 1, 1);
+        byte[] descriptionHit = matchInfo(1, 3, 0, 4, 4, 0, 2, 2, 1, 1, 1);
+
+        assertEquals(4.0 * 1 / 4, FtsQuery.rank(nameHit, 4, 2, 1), EPSILON);
+        assertEquals(2.0 * 1 / 2, FtsQuery.rank(themeHit, 4, 2, 1), EPSILON);
+        assertEquals(1.0 * 1 / 1, FtsQuery.rank(descriptionHit, 4, 2, 1), EPSILON);
+    }
+
+    @Test
+    public void rankSumsPhrasesAndRepeatedHits() {
+        // 2 слова, 1 колонка: первое встречается в строке дважды из 4, второе — один раз из 2
+        byte[] info = matchInfo(2, 1, 2, 4, 3, 1, 2, 2);
+
+        assertEquals(3.0 * (2.0 / 4 + 1.0 / 2), FtsQuery.rank(info, 3), EPSILON);
+        // Колонки без веса считаются с весом 1
+        assertEquals(2.0 / 4 + 1.0 / 2, FtsQuery.rank(info), EPSILON);
+        assertEquals(0, FtsQuery.rank(matchInfo(1, 1, 0, 4, 3)), EPSILON);
+    }
+
+    private static byte[] matchInfo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
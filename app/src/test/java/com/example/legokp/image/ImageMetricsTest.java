@@ -0,0 +1,115 @@
+package com.example.legokp.image;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Снимок ImageMetrics по вызовам RequestListener, как их делает Glide
+ */
+public class ImageMetricsTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final String MODEL = "https://cdn.rebrickable.com/media/sets/75192-1.jpg";
+
+    @Before
+    public void setUp() {
+        ImageMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        ImageMetrics.reset();
+    }
+
+    @Test
+    public void loadsAreCountedPerScreenAndDataSource() {
+        ready(ImageMetrics.SCREEN_SETS, DataSource.MEMORY_CACHE);
+        ready(ImageMetrics.SCREEN_SETS, DataSource.MEMORY_CACHE);
+        ready(ImageMetrics.SCREEN_SETS, DataSource.RESOURCE_DISK_CACHE);
+        ready(ImageMetrics.SCREEN_SETS, DataSource.REMOTE);
+        ready(ImageMetrics.SCREEN_MINIFIGS, DataSource.DATA_DISK_CACHE);
+
+        ImageMetrics.Snapshot snapshot = ImageMetrics.snapshot();
+        ImageMetrics.ScreenStats sets = snapshot.get(ImageMetrics.SCREEN_SETS);
+        assertEquals(4, sets.getTotalLoads());
+        assertEquals(2, sets.getCount(DataSource.MEMORY_CACHE));
+        assertEquals(1, sets.getCount(DataSource.RESOURCE_DISK_CACHE));
+        assertEquals(1, sets.getCount(DataSource.REMOTE));
+        assertEquals(0, sets.getCount(DataSource.DATA_DISK_CACHE));
+        assertEquals(0.5, sets.getMemoryHitRatio(), EPSILON);
+
+        ImageMetrics.ScreenStats minifigs = snapshot.get(ImageMetrics.SCREEN_MINIFIGS);
+        assertEquals(1, minifigs.getCount(DataSource.DATA_DISK_CACHE));
+        assertEquals(0, minifigs.getMemoryHitRatio(), EPSILON);
+        assertNull(snapshot.get(ImageMetrics.SCREEN_FAVORITES));
+    }
+
+    @Test
+    public void nonBitmapResourceAddsNoDecodedBytes() {
+        ready(ImageMetrics.SCREEN_SET_DETAIL, DataSource.LOCAL);
+
+        assertEquals(0, ImageMetrics.snapshot().get(ImageMetrics.SCREEN_SET_DETAIL).getDecodedBytes());
+    }
+
+    @Test
+    public void loadTimeStartsWhenListenerIsCreated() throws InterruptedException {
+        RequestListener<Object> listener = ImageMetrics.listener(ImageMetrics.SCREEN_SETS);
+        Thread.sleep(30);
+        listener.onResourceReady("drawable", MODEL, null, DataSource.REMOTE, true);
+
+        double maxMs = ImageMetrics.snapshot().get(ImageMetrics.SCREEN_SETS).getLoadTime(DataSource.REMOTE).getMaxMs();
+        assertTrue("load time " + maxMs + " ms", maxMs >= 30);
+    }
+
+    @Test
+    public void failuresAreCountedAndNotConsumed() {
+        RequestListener<Object> listener = ImageMetrics.listener(ImageMetrics.SCREEN_FAVORITES);
+
+        // false: Glide продолжает обычную обработку (placeholder ошибки)
+        assertFalse(listener.onLoadFailed(new GlideException("404"), MODEL, null, true));
+
+        ImageMetrics.ScreenStats stats = ImageMetrics.snapshot().get(ImageMetrics.SCREEN_FAVORITES);
+        assertEquals(1, stats.getFailures());
+        assertEquals(0, stats.getTotalLoads());
+    }
+
+    @Test
+    public void snapshotIsACopy() {
+        ready(ImageMetrics.SCREEN_SETS, DataSource.REMOTE);
+        ImageMetrics.Snapshot before = ImageMetrics.snapshot();
+        ready(ImageMetrics.SCREEN_SETS, DataSource.REMOTE);
+
+        assertEquals(1, before.get(ImageMetrics.SCREEN_SETS).getTotalLoads());
+        assertEquals(2, ImageMetrics.snapshot().get(ImageMetrics.SCREEN_SETS).getTotalLoads());
+    }
+
+    @Test
+    public void dumpListsScreensAndSources() {
+        assertEquals("No image loads recorded", ImageMetrics.snapshot().dump());
+
+        ready(ImageMetrics.SCREEN_SETS, DataSource.MEMORY_CACHE);
+        ready(ImageMetrics.SCREEN_SETS, DataSource.REMOTE);
+
+        String dump = ImageMetrics.snapshot().dump();
+        assertTrue(dump, dump.startsWith(ImageMetrics.SCREEN_SETS + "\n"));
+        assertTrue(dump, dump.contains("loads=2 failed=0 memory hit=50%"));
+        assertTrue(dump, dump.contains("memory_cache"));
+        assertTrue(dump, dump.contains("remote"));
+        assertFalse(dump, dump.contains("data_disk_cache"));
+    }
+
+    private static void ready(String screen, DataSource source) {
+        RequestListener<Object> listener = ImageMetrics.listener(screen);
+        assertFalse(listener.onResourceReady("drawable", MODEL, null, source, true));
+    }
+}
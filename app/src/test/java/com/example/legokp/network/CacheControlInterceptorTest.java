@@ -0,0 +1,157 @@
+package com.example.legokp.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import okhttp3.Cache;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Дисковый кэш OkHttp + CacheControlInterceptor против MockWebServer:
+ * в пределах max-age повторный запрос не доходит до сервера.
+ */
+public class CacheControlInterceptorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private Cache cache;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        cache = new Cache(tempFolder.newFolder("http_cache"), 1024 * 1024);
+        client = new OkHttpClient.Builder()
+                .cache(cache)
+                .addNetworkInterceptor(new CacheControlInterceptor(cache))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void secondRequestInsideTtlIsServedFromCache() throws IOException {
+        // Сервер не отдает Cache-Control: max-age проставляет interceptor
+        server.enqueue(new MockResponse().setBody("[\"City\",\"Technic\"]"));
+
+        assertEquals("[\"City\",\"Technic\"]", get("/lego/themes"));
+        assertEquals("[\"City\",\"Technic\"]", get("/lego/themes"));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(2, cache.requestCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.networkCount());
+    }
+
+    @Test
+    public void everyRuledEndpointIsCached() throws IOException {
+        String[] paths = {"/lego/themes", "/lego/minifigs/", "/api/legosets?page=1", "/api/reviews/75192"};
+        for (String path : paths) {
+            server.enqueue(new MockResponse().setBody(path));
+        }
+        for (String path : paths) {
+            assertEquals(path, get(path));
+            assertEquals(path, get(path));
+        }
+        assertEquals(paths.length, server.getRequestCount());
+        assertEquals(paths.length, cache.hitCount());
+    }
+
+    @Test
+    public void cacheControlHeaderCarriesTtlAndStaleIfError() throws IOException {
+        server.enqueue(new MockResponse().setBody("[]"));
+
+        try (Response response = client.newCall(request("/api/reviews/75192")).execute()) {
+            String cacheControl = response.header("Cache-Control");
+            assertNotNull(cacheControl);
+            assertTrue(cacheControl, cacheControl.contains("max-age=" + CacheControlInterceptor.maxAgeFor("/api/reviews")));
+            assertTrue(cacheControl, cacheControl.contains("stale-if-error="
+                    + CacheControlInterceptor.STALE_IF_ERROR_SECONDS));
+        }
+    }
+
+    @Test
+    public void unruledPathAndNoStoreResponsesReachNetworkEveryTime() throws IOException {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+        server.enqueue(new MockResponse().setBody("c").setHeader("Cache-Control", "no-store"));
+        server.enqueue(new MockResponse().setBody("d").setHeader("Cache-Control", "no-store"));
+
+        assertEquals("a", get("/api/login-status"));
+        assertEquals("b", get("/api/login-status"));
+        assertEquals("c", get("/lego/themes"));
+        assertEquals("d", get("/lego/themes"));
+
+        assertEquals(4, server.getRequestCount());
+        assertEquals(0, cache.hitCount());
+    }
+
+    @Test
+    public void successfulWriteEvictsCachedSection() throws IOException {
+        server.enqueue(new MockResponse().setBody("themes"));
+        server.enqueue(new MockResponse().setBody("old"));
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+        server.enqueue(new MockResponse().setBody("new"));
+
+        assertEquals("themes", get("/lego/themes"));
+        assertEquals("old", get("/api/reviews/75192"));
+        post("/api/reviews");
+
+        // Список отзывов перечитан с сервера, а темы из другого раздела остались в кэше
+        assertEquals("new", get("/api/reviews/75192"));
+        assertEquals("themes", get("/lego/themes"));
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void maxAgeRulesFollowPrefixOrder() {
+        assertEquals(24 * 3600, CacheControlInterceptor.maxAgeFor("/lego/themes"));
+        assertEquals(3600, CacheControlInterceptor.maxAgeFor("/lego/minifigs/"));
+        assertEquals(300, CacheControlInterceptor.maxAgeFor("/api/legosets/75192"));
+        assertEquals(60, CacheControlInterceptor.maxAgeFor("/api/reviews/75192"));
+        assertEquals(0, CacheControlInterceptor.maxAgeFor("/api/login"));
+    }
+
+    private String get(String path) throws IOException {
+        try (Response response = client.newCall(request(path)).execute()) {
+            assertTrue(response.isSuccessful());
+            return response.body().string();
+        }
+    }
+
+    private void post(String path) throws IOException {
+        Request request = new Request.Builder()
+                .url(server.url(path))
+                .post(RequestBody.create("{}", MediaType.get("application/json")))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertTrue(response.isSuccessful());
+        }
+    }
+
+    private Request request(String path) {
+        return new Request.Builder().url(server.url(path)).build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.legokp.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long T0 = 1_000_000L;
+
+    @Test
+    public void opensAfterThresholdConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            assertTrue(breaker.allowRequest(T0));
+            assertFalse(breaker.onFailure(T0));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.onFailure(T0));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(T0 + 1));
+        assertEquals(CircuitBreaker.OPEN_MILLIS - 1, breaker.remainingOpenMillis(T0 + 1));
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure(T0);
+        }
+        breaker.onSuccess();
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            assertFalse(breaker.onFailure(T0));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenLetsExactlyOneProbeThrough() {
+        CircuitBreaker breaker = openBreaker();
+        long afterOpen = T0 + CircuitBreaker.OPEN_MILLIS;
+
+        assertTrue(breaker.allowRequest(afterOpen));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(afterOpen));
+        assertEquals(0, breaker.remainingOpenMillis(afterOpen));
+    }
+
+    @Test
+    public void successfulProbeCloses() {
+        CircuitBreaker breaker = openBreaker();
+        assertTrue(breaker.allowRequest(T0 + CircuitBreaker.OPEN_MILLIS));
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(T0 + CircuitBreaker.OPEN_MILLIS));
+    }
+
+    @Test
+    public void failedProbeReopensForAnotherFullPeriod() {
+        CircuitBreaker breaker = openBreaker();
+        long probeAt = T0 + CircuitBreaker.OPEN_MILLIS;
+        assertTrue(breaker.allowRequest(probeAt));
+
+        // Одного отказа в HALF_OPEN достаточно
+        assertTrue(breaker.onFailure(probeAt));
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(probeAt + CircuitBreaker.OPEN_MILLIS - 1));
+        assertTrue(breaker.allowRequest(probeAt + CircuitBreaker.OPEN_MILLIS));
+    }
+
+    @Test
+    public void cancelledProbeCanBeRetried() {
+        CircuitBreaker breaker = openBreaker();
+        long probeAt = T0 + CircuitBreaker.OPEN_MILLIS;
+        assertTrue(breaker.allowRequest(probeAt));
+
+        breaker.onCancelled();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest(probeAt));
+    }
+
+    private static CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.onFailure(T0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.legokp.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CoalescingInterceptorTest {
+
+    private static final int CALLERS = 16;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new CoalescingInterceptor())
+                .build();
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentIdenticalGetsShareOneRequest() throws Exception {
+        // Ответ задерживается, чтобы все вызовы успели встать в очередь за первым
+        server.enqueue(new MockResponse().setBody("[\"City\",\"Technic\"]").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+        List<Future<String>> results = runConcurrently(CALLERS, () -> get(coalesced("/api/lego/themes")));
+
+        for (Future<String> result : results) {
+            assertEquals("[\"City\",\"Technic\"]", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void differentConditionalHeadersAreNotShared() throws Exception {
+        server.enqueue(new MockResponse().setBody("a").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        Future<String> plain = executor.submit(() -> get(coalesced("/api/legosets/75192")));
+        Future<String> conditional = executor.submit(() -> get(new Request.Builder()
+                .url(server.url("/api/legosets/75192"))
+                .header(CoalescingInterceptor.HEADER_COALESCE, "true")
+                .header("If-None-Match", "\"v1\"")
+                .build()));
+
+        plain.get(5, TimeUnit.SECONDS);
+        conditional.get(5, TimeUnit.SECONDS);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void memoServesRepeatedCallsWithinTtl() throws Exception {
+        server.enqueue(new MockResponse().setBody("memo"));
+
+        Request request = new Request.Builder()
+                .url(server.url("/api/lego/themes"))
+                .header(CoalescingInterceptor.HEADER_MEMO_TTL, "60000")
+                .build();
+        assertEquals("memo", get(request));
+        assertEquals("memo", get(request));
+        assertEquals(1, server.getRequestCount());
+        // Служебный заголовок на сервер не уходит
+        assertNull(server.takeRequest().getHeader(CoalescingInterceptor.HEADER_MEMO_TTL));
+    }
+
+    @Test
+    public void cancelledLeaderDoesNotFailWaiters() throws Exception {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(10, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("retried"));
+
+        Request request = coalesced("/api/reviews/75192");
+        Call leader = client.newCall(request);
+        Future<String> leaderResult = executor.submit(() -> {
+            try (Response response = leader.execute()) {
+                return response.body().string();
+            }
+        });
+        // Ведущий вызов дошел до сервера, теперь подключаются ожидающие
+        server.takeRequest(5, TimeUnit.SECONDS);
+        List<Future<String>> waiters = runConcurrently(CALLERS - 1, () -> get(request));
+        Thread.sleep(200);
+
+        leader.cancel();
+
+        try {
+            leaderResult.get(5, TimeUnit.SECONDS);
+            fail("Cancelled leader must fail");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+        for (Future<String> waiter : waiters) {
+            assertEquals("retried", waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void getsWithoutOptInAreNotShared() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody("page").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        }
+
+        List<Future<String>> results = runConcurrently(4, () -> get(new Request.Builder()
+                .url(server.url("/api/legosets?page=1")).build()));
+
+        for (Future<String> result : results) {
+            assertEquals("page", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void oversizedBodyIsNotBufferedForWaiters() throws Exception {
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new CoalescingInterceptor(16))
+                .build();
+        String body = repeat('x', 1024);
+        for (int i = 0; i < 4; i++) {
+            // Без Content-Length: размер проверяется чтением не больше лимита + 1 байт
+            server.enqueue(new MockResponse().setChunkedBody(body, 100).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        }
+
+        List<Future<String>> results = runConcurrently(4, () -> get(coalesced("/api/minifigs")));
+
+        for (Future<String> result : results) {
+            assertEquals(body, result.get(5, TimeUnit.SECONDS));
+        }
+        // Ответ не разделяется: каждый вызывающий получил свой
+        assertEquals(4, server.getRequestCount());
+        assertNull(server.takeRequest().getHeader(CoalescingInterceptor.HEADER_COALESCE));
+    }
+
+    @Test
+    public void waitersOutliveLeaderRetries() throws Exception {
+        // Ведущий занимает больше connect + read: первая попытка падает по таймауту и повторяется
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new CoalescingInterceptor())
+                .addInterceptor(new ResilienceInterceptor())
+                .connectTimeout(100, TimeUnit.MILLISECONDS)
+                .readTimeout(200, TimeUnit.MILLISECONDS)
+                .build();
+        server.enqueue(new MockResponse().setBody("late").setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("retried").setHeadersDelay(150, TimeUnit.MILLISECONDS));
+
+        Request request = coalesced("/api/reviews/75192/rating");
+        Future<String> leader = executor.submit(() -> get(request));
+        server.takeRequest(5, TimeUnit.SECONDS);
+        List<Future<String>> waiters = runConcurrently(CALLERS - 1, () -> get(request));
+
+        assertEquals("retried", leader.get(5, TimeUnit.SECONDS));
+        for (Future<String> waiter : waiters) {
+            assertEquals("retried", waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private Request coalesced(String path) {
+        return new Request.Builder()
+                .url(server.url(path))
+                .header(CoalescingInterceptor.HEADER_COALESCE, "true")
+                .build();
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private List<Future<String>> runConcurrently(int callers, Callable<String> call) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return call.call();
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private String get(Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            return response.body() != null ? response.body().string() : null;
+        }
+    }
+}
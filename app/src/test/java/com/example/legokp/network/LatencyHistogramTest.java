@@ -0,0 +1,93 @@
+package com.example.legokp.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMs(), EPSILON);
+        assertEquals(0, histogram.getPercentileMs(50), EPSILON);
+        assertEquals("-", histogram.toString());
+    }
+
+    @Test
+    public void negativeSamplesAreSkipped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // -1 — фаза, которой не было (например, DNS на переиспользованном соединении)
+        histogram.record(-1);
+
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void meanAndMaxUseExactNanos() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(ms(2));
+        histogram.record(ms(4));
+        histogram.record(ms(30));
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(12, histogram.getMeanMs(), EPSILON);
+        assertEquals(30, histogram.getMaxMs(), EPSILON);
+    }
+
+    @Test
+    public void percentilesReturnBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 90 быстрых (корзина <= 5 мс), 9 средних (<= 250 мс), 1 медленный
+        for (int i = 0; i < 90; i++) histogram.record(ms(3));
+        for (int i = 0; i < 9; i++) histogram.record(ms(200));
+        histogram.record(ms(1800));
+
+        assertEquals(5, histogram.getPercentileMs(50), EPSILON);
+        assertEquals(5, histogram.getPercentileMs(90), EPSILON);
+        assertEquals(250, histogram.getPercentileMs(95), EPSILON);
+        assertEquals(250, histogram.getPercentileMs(99), EPSILON);
+        assertEquals(1800, histogram.getPercentileMs(100), EPSILON);
+    }
+
+    @Test
+    public void bucketBoundIsInclusiveAndCappedByMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(ms(5));
+        assertEquals(5, histogram.getPercentileMs(100), EPSILON);
+
+        LatencyHistogram below = new LatencyHistogram();
+        below.record(ms(60));
+        // Корзина (50, 100] мс, но максимум меньше границы
+        assertEquals(60, below.getPercentileMs(50), EPSILON);
+    }
+
+    @Test
+    public void overflowBucketReportsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long last = LatencyHistogram.BUCKET_BOUNDS_MS[LatencyHistogram.BUCKET_BOUNDS_MS.length - 1];
+        histogram.record(ms(last + 7_000));
+
+        assertEquals(last + 7_000, histogram.getPercentileMs(50), EPSILON);
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(ms(10));
+        LatencyHistogram copy = histogram.copy();
+        histogram.record(ms(20));
+
+        assertEquals(1, copy.getCount());
+        assertEquals(10, copy.getMaxMs(), EPSILON);
+        assertEquals(2, histogram.getCount());
+    }
+
+    private static long ms(long millis) {
+        return millis * 1_000_000L;
+    }
+}
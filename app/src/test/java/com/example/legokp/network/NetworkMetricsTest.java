@@ -0,0 +1,166 @@
+package com.example.legokp.network;
+
+import com.example.legokp.models.ReviewResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Снимок NetworkMetrics по реальным событиям OkHttp (MetricsEventListener.FACTORY) против MockWebServer
+ */
+public class NetworkMetricsTest {
+
+    private static final String REVIEWS = "GET api/reviews/{setNum}";
+    private static final String REVIEWS_JSON = "{\"success\":true,\"reviews\":[],\"count\":0,\"averageRating\":0}";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private Cache cache;
+    private LegoApiService api;
+
+    @Before
+    public void setUp() throws IOException {
+        NetworkMetrics.reset();
+        server = new MockWebServer();
+        server.start();
+        cache = new Cache(tempFolder.newFolder("http_cache"), 1024 * 1024);
+        OkHttpClient client = RetrofitClient.tunedClientBuilder()
+                .cache(cache)
+                .eventListenerFactory(MetricsEventListener.FACTORY)
+                .addNetworkInterceptor(new CacheControlInterceptor(cache))
+                .build();
+        api = RetrofitClient.buildRetrofit(server.url("/").toString(), client).create(LegoApiService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        server.shutdown();
+        NetworkMetrics.reset();
+    }
+
+    @Test
+    public void pathParamsCollapseIntoOneEndpoint() throws IOException {
+        server.enqueue(json(REVIEWS_JSON));
+        server.enqueue(json(REVIEWS_JSON));
+
+        assertTrue(api.getReviews("75192-1").execute().isSuccessful());
+        assertTrue(api.getReviews("10497-1").execute().isSuccessful());
+
+        NetworkMetrics.Snapshot snapshot = NetworkMetrics.snapshot();
+        assertEquals(1, snapshot.endpoints.size());
+        NetworkMetrics.EndpointStats stats = snapshot.get(REVIEWS);
+        assertNotNull(snapshot.dump(), stats);
+        assertEquals(2, stats.getCalls());
+        assertEquals(0, stats.getFailures());
+        assertEquals(2, stats.getCacheCount(NetworkMetrics.CacheStatus.MISS));
+        assertEquals(2, stats.total.getCount());
+        assertEquals(2, stats.ttfb.getCount());
+        assertEquals(2, stats.body.getCount());
+        // Соединение открыто один раз, второй вызов его переиспользовал
+        assertEquals(1, stats.connect.getCount());
+        assertEquals(0, stats.tls.getCount());
+    }
+
+    @Test
+    public void bytesComeFromRequestAndResponseEvents() throws Exception {
+        MockResponse served = json(REVIEWS_JSON);
+        server.enqueue(served);
+
+        Response<ReviewResponse> response = api.getReviews("75192-1").execute();
+        assertTrue(response.isSuccessful());
+
+        NetworkMetrics.EndpointStats stats = NetworkMetrics.snapshot().get(REVIEWS);
+        // Заголовки ответа — как их прислал сервер, до CacheControlInterceptor
+        assertEquals(REVIEWS_JSON.length() + served.getHeaders().byteCount(), stats.getBytesIn());
+        assertEquals(server.takeRequest().getHeaders().byteCount(), stats.getBytesOut());
+    }
+
+    @Test
+    public void cacheHitIsRecordedWithoutNetworkPhases() throws IOException {
+        server.enqueue(json(REVIEWS_JSON));
+
+        assertTrue(api.getReviews("75192-1").execute().isSuccessful());
+        assertTrue(api.getReviews("75192-1").execute().isSuccessful());
+
+        NetworkMetrics.EndpointStats stats = NetworkMetrics.snapshot().get(REVIEWS);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(2, stats.getCalls());
+        assertEquals(1, stats.getCacheCount(NetworkMetrics.CacheStatus.MISS));
+        assertEquals(1, stats.getCacheCount(NetworkMetrics.CacheStatus.HIT));
+        assertEquals(1, stats.ttfb.getCount());
+    }
+
+    @Test
+    public void dynamicUrlCollapsesNumericSegments() throws IOException {
+        server.enqueue(json("{\"count\":0,\"results\":[]}"));
+
+        Response<ResponseBody> response = api.streamLegoSetsByUrl(server.url("/api/legosets/page/2").toString())
+                .execute();
+        response.body().close();
+
+        NetworkMetrics.Snapshot snapshot = NetworkMetrics.snapshot();
+        assertNotNull(snapshot.dump(), snapshot.get("GET api/legosets/page/{id}"));
+    }
+
+    @Test
+    public void failedCallIsCounted() {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        // Без повтора на новом соединении: иначе второй запрос ждал бы ответа из пустой очереди
+        OkHttpClient noRetry = RetrofitClient.tunedClientBuilder()
+                .eventListenerFactory(MetricsEventListener.FACTORY)
+                .retryOnConnectionFailure(false)
+                .build();
+        LegoApiService failingApi = RetrofitClient.buildRetrofit(server.url("/").toString(), noRetry)
+                .create(LegoApiService.class);
+
+        try {
+            failingApi.getReviews("75192-1").execute();
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            // ожидаемо
+        }
+
+        NetworkMetrics.EndpointStats stats = NetworkMetrics.snapshot().get(REVIEWS);
+        assertEquals(1, stats.getCalls());
+        assertEquals(1, stats.getFailures());
+        assertTrue(NetworkMetrics.snapshot().dump().contains("failed=1"));
+    }
+
+    @Test
+    public void snapshotIsACopy() throws IOException {
+        server.enqueue(json(REVIEWS_JSON));
+        server.enqueue(json(REVIEWS_JSON));
+
+        api.getReviews("1").execute();
+        NetworkMetrics.Snapshot before = NetworkMetrics.snapshot();
+        api.getReviews("2").execute();
+
+        assertEquals(1, before.get(REVIEWS).getCalls());
+        assertEquals(2, NetworkMetrics.snapshot().get(REVIEWS).getCalls());
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
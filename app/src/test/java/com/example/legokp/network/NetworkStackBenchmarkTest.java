@@ -0,0 +1,151 @@
+package com.example.legokp.network;
+
+import com.example.legokp.models.ThemeResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Накладные расходы на запрос: прежний стек (новый OkHttpClient, Retrofit и create на каждый вызов,
+ * логирование BODY) против общего стека RetrofitClient. Время печатается, проверяется переиспользование соединения.
+ */
+public class NetworkStackBenchmarkTest {
+
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 300;
+    private static final String THEMES_JSON = buildThemesJson(200);
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(THEMES_JSON);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void sharedStackHasLowerPerRequestOverhead() throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            callWithPerCallStack();
+        }
+        LegoApiService shared = RetrofitClient.buildRetrofit(server.url("/").toString(),
+                RetrofitClient.tunedClientBuilder().build()).create(LegoApiService.class);
+        for (int i = 0; i < WARMUP; i++) {
+            callShared(shared);
+        }
+        drainRecordedRequests();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            callWithPerCallStack();
+        }
+        long perCallNanos = (System.nanoTime() - start) / ITERATIONS;
+        int perCallNewConnections = countNewConnections(ITERATIONS);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            callShared(shared);
+        }
+        long sharedNanos = (System.nanoTime() - start) / ITERATIONS;
+        int sharedNewConnections = countNewConnections(ITERATIONS);
+
+        System.out.println(String.format(Locale.US,
+                "per-call stack: %.1f us/request, %d new connections; shared stack: %.1f us/request, %d new connections",
+                perCallNanos / 1000.0, perCallNewConnections, sharedNanos / 1000.0, sharedNewConnections));
+
+        // Прежний стек открывал соединение на каждый запрос, общий держит одно в пуле
+        assertEquals(ITERATIONS, perCallNewConnections);
+        assertEquals(0, sharedNewConnections);
+        assertTrue("shared " + sharedNanos + "ns vs per-call " + perCallNanos + "ns", sharedNanos < perCallNanos);
+    }
+
+    /**
+     * Как было до общего стека: клиент, Retrofit и прокси API создаются на каждый вызов, тело буферизуется логгером
+     */
+    private void callWithPerCallStack() throws IOException {
+        HttpLoggingInterceptor logging = new HttpLoggingInterceptor(message -> { });
+        logging.setLevel(HttpLoggingInterceptor.Level.BODY);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(logging)
+                .build();
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+        try {
+            assertThemes(retrofit.create(LegoApiService.class).getThemes().execute());
+        } finally {
+            client.connectionPool().evictAll();
+        }
+    }
+
+    private static void callShared(LegoApiService api) throws IOException {
+        assertThemes(api.getThemes().execute());
+    }
+
+    private static void assertThemes(Response<ThemeResponse> response) {
+        assertTrue(response.isSuccessful());
+        assertEquals(200, response.body().getThemes().size());
+    }
+
+    /**
+     * MockWebServer нумерует запросы внутри соединения: 0 — первый запрос на новом соединении
+     */
+    private int countNewConnections(int requests) {
+        int newConnections = 0;
+        for (int i = 0; i < requests; i++) {
+            try {
+                if (server.takeRequest().getSequenceNumber() == 0) newConnections++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+        return newConnections;
+    }
+
+    private void drainRecordedRequests() {
+        countNewConnections(server.getRequestCount());
+    }
+
+    private static String buildThemesJson(int count) {
+        StringBuilder json = new StringBuilder("{\"themes\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":\"").append(i).append("\",\"name\":\"Theme ").append(i)
+                    .append("\",\"count\":").append(i * 3).append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
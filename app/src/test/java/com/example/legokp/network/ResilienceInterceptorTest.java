@@ -0,0 +1,250 @@
+package com.example.legokp.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ResilienceInterceptor против MockWebServer, который отвечает 5xx, Retry-After и с задержкой
+ */
+public class ResilienceInterceptorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ResilienceInterceptor interceptor;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        interceptor = new ResilienceInterceptor();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(interceptor)
+                .readTimeout(250, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void getIsRetriedUntilSuccess() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = get("/api/legosets")) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(3, server.getRequestCount());
+        assertTrue(interceptor.getStatsSummary(), interceptor.getStatsSummary().startsWith("retries=2 "));
+    }
+
+    @Test
+    public void lastRetryableResponseIsReturnedAfterMaxAttempts() throws IOException {
+        for (int i = 0; i < ResilienceInterceptor.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        try (Response response = get("/api/legosets")) {
+            assertEquals(500, response.code());
+        }
+        assertEquals(ResilienceInterceptor.MAX_ATTEMPTS, server.getRequestCount());
+    }
+
+    @Test
+    public void postIsNotRetried() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("must not be used"));
+
+        Request request = new Request.Builder()
+                .url(server.url("/api/reviews"))
+                .post(RequestBody.create("{}", MediaType.get("application/json")))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        try (Response response = get("/api/legosets/none")) {
+            assertEquals(404, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void retryAfterSecondsIsHonored() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        long start = System.nanoTime();
+        try (Response response = get("/api/reviews/75192")) {
+            assertEquals(200, response.code());
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(2, server.getRequestCount());
+        assertTrue("waited " + elapsedMs + " ms", elapsedMs >= 1000);
+    }
+
+    @Test
+    public void tooLongRetryAfterReturnsResponseAsIs() throws IOException {
+        long seconds = ResilienceInterceptor.MAX_RETRY_AFTER_MILLIS / 1000 + 50;
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", String.valueOf(seconds)));
+
+        long start = System.nanoTime();
+        try (Response response = get("/api/legosets")) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+
+    @Test
+    public void slowResponseTimesOutAndIsRetried() throws IOException {
+        server.enqueue(new MockResponse().setBody("late").setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = get("/api/legosets")) {
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void slowResponsesExhaustAttempts() {
+        for (int i = 0; i < ResilienceInterceptor.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setBody("late").setHeadersDelay(1, TimeUnit.SECONDS));
+        }
+
+        try {
+            get("/api/legosets").close();
+            fail("Expected timeout");
+        } catch (SocketTimeoutException expected) {
+            // ожидаемо
+        } catch (IOException e) {
+            fail("Unexpected " + e);
+        }
+        assertEquals(ResilienceInterceptor.MAX_ATTEMPTS, server.getRequestCount());
+    }
+
+    @Test
+    public void circuitOpensAndFailsFastWithoutNetwork() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        // Первый вызов: 3 попытки, второй — еще 2, на пятом отказе подряд предохранитель открывается
+        try (Response response = get("/api/legosets")) {
+            assertEquals(500, response.code());
+        }
+        assertCircuitOpen();
+        assertEquals(CircuitBreaker.FAILURE_THRESHOLD, server.getRequestCount());
+
+        // Открытый предохранитель: сразу исключение, в сеть запрос не уходит
+        assertCircuitOpen();
+        assertEquals(CircuitBreaker.FAILURE_THRESHOLD, server.getRequestCount());
+        assertTrue(interceptor.getStatsSummary(), interceptor.getStatsSummary().contains("circuitOpened=1"));
+        assertTrue(interceptor.getStatsSummary(), interceptor.getStatsSummary().contains("=OPEN"));
+    }
+
+    @Test
+    public void onlyIfCachedBypassesOpenCircuit() throws IOException {
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+        get("/api/legosets").close();
+        assertCircuitOpen();
+
+        // Без кэша OkHttp сам отвечает 504 на only-if-cached, предохранитель не мешает
+        Request request = new Request.Builder()
+                .url(server.url("/api/legosets"))
+                .cacheControl(CacheControl.FORCE_CACHE)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(504, response.code());
+        }
+    }
+
+    @Test
+    public void cachedResponseDoesNotResetFailureCount() throws IOException {
+        Cache cache = new Cache(tempFolder.newFolder("http_cache"), 1024 * 1024);
+        client = client.newBuilder().cache(cache).build();
+        server.enqueue(new MockResponse().setBody("themes").setHeader("Cache-Control", "max-age=60"));
+        for (int i = 0; i < 10; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        get("/api/lego/themes").close();
+        // Три неудачные попытки подряд
+        get("/api/legosets").close();
+        try (Response cached = get("/api/lego/themes")) {
+            assertNull(cached.networkResponse());
+            assertEquals("themes", cached.body().string());
+        }
+        // Ответ из кэша не считается успехом: еще две неудачи открывают предохранитель
+        assertCircuitOpen();
+
+        assertEquals(1 + CircuitBreaker.FAILURE_THRESHOLD, server.getRequestCount());
+        cache.close();
+    }
+
+    @Test
+    public void backoffStaysWithinJitterCeiling() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long ceiling = Math.min(ResilienceInterceptor.MAX_DELAY_MILLIS,
+                    ResilienceInterceptor.BASE_DELAY_MILLIS << (attempt - 1));
+            for (int i = 0; i < 200; i++) {
+                long delay = ResilienceInterceptor.backoffMillis(attempt);
+                assertTrue(delay >= 0 && delay <= ceiling);
+            }
+        }
+    }
+
+    private void assertCircuitOpen() {
+        try {
+            get("/api/legosets").close();
+            fail("Expected CircuitOpenException");
+        } catch (ResilienceInterceptor.CircuitOpenException expected) {
+            // ожидаемо
+        } catch (IOException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    private Response get(String path) throws IOException {
+        return client.newCall(new Request.Builder().url(server.url(path)).build()).execute();
+    }
+}
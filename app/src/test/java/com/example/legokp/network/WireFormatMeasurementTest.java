@@ -0,0 +1,222 @@
+package com.example.legokp.network;
+
+import com.example.legokp.database.entity.LegoSetEntity;
+import com.example.legokp.models.LegoSet;
+import com.example.legokp.models.LegoSetResponse;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CBOR и JSON бок о бок на одних и тех же данных: размер тела и время разбора
+ * через NegotiatingConverterFactory и LegoSetStreamReader против MockWebServer.
+ * Ответы отдаются chunked и gzip, то есть без Content-Length — размер берется из прочитанных байтов.
+ */
+public class WireFormatMeasurementTest {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int ROUNDS = 20;
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final String CBOR_TYPE = "application/cbor";
+
+    private MockWebServer server;
+    private LegoApiService api;
+    private byte[] jsonPage;
+    private byte[] cborPage;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        OkHttpClient client = RetrofitClient.tunedClientBuilder().build();
+        api = RetrofitClient.buildRetrofit(server.url("/").toString(), client).create(LegoApiService.class);
+
+        Map<String, Object> page = buildPage(PAGE_SIZE);
+        jsonPage = new Gson().toJson(page).getBytes(StandardCharsets.UTF_8);
+        cborPage = WireFormat.CBOR_MAPPER.writeValueAsBytes(page);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void convertedPagesSideBySide() throws IOException {
+        // Прогрев: первый разбор включает построение адаптеров Gson и десериализаторов Jackson
+        enqueueChunked(cborPage, CBOR_TYPE);
+        enqueueChunked(jsonPage, JSON_TYPE);
+        fetchPage();
+        fetchPage();
+
+        WireFormat.Stats before = WireFormat.getStats();
+        for (int i = 0; i < ROUNDS; i++) {
+            enqueueChunked(cborPage, CBOR_TYPE);
+            enqueueChunked(jsonPage, JSON_TYPE);
+            List<LegoSet> fromCbor = fetchPage();
+            List<LegoSet> fromJson = fetchPage();
+            assertSamePage(fromJson, fromCbor);
+        }
+        WireFormat.Stats after = WireFormat.getStats();
+
+        long cborBytes = after.cborBytes - before.cborBytes;
+        long jsonBytes = after.jsonBytes - before.jsonBytes;
+        long cborNanos = after.cborParseNanos - before.cborParseNanos;
+        long jsonNanos = after.jsonParseNanos - before.jsonParseNanos;
+        System.out.println(String.format(Locale.US,
+                "%d sets x %d pages: CBOR %d B/page, %.2f ms/page | JSON %d B/page, %.2f ms/page",
+                PAGE_SIZE, ROUNDS, cborBytes / ROUNDS, cborNanos / 1e6 / ROUNDS,
+                jsonBytes / ROUNDS, jsonNanos / 1e6 / ROUNDS));
+
+        assertEquals(ROUNDS, after.cborResponses - before.cborResponses);
+        assertEquals(ROUNDS, after.jsonResponses - before.jsonResponses);
+        // Байты считаются по телу, хотя Content-Length у chunked-ответа нет
+        assertEquals((long) ROUNDS * cborPage.length, cborBytes);
+        assertEquals((long) ROUNDS * jsonPage.length, jsonBytes);
+        assertTrue("CBOR " + cborPage.length + " B vs JSON " + jsonPage.length + " B", cborPage.length < jsonPage.length);
+    }
+
+    @Test
+    public void streamedPagesCountGunzippedBytes() throws IOException {
+        enqueueGzip(jsonPage, JSON_TYPE);
+        enqueueGzip(cborPage, CBOR_TYPE);
+
+        WireFormat.Stats before = WireFormat.getStats();
+        List<String> fromJson = streamPage(0);
+        List<String> fromCbor = streamPage(0);
+        WireFormat.Stats after = WireFormat.getStats();
+
+        assertEquals(PAGE_SIZE, fromJson.size());
+        assertEquals(fromJson, fromCbor);
+        // Распакованный размер: Content-Length сжатого тела OkHttp убирает вместе с Content-Encoding
+        assertEquals(jsonPage.length, after.jsonBytes - before.jsonBytes);
+        assertEquals(cborPage.length, after.cborBytes - before.cborBytes);
+    }
+
+    @Test
+    public void streamedDecodeTimeExcludesConsumer() throws IOException {
+        long consumerDelayMs = 200;
+        enqueueChunked(jsonPage, JSON_TYPE);
+
+        WireFormat.Stats before = WireFormat.getStats();
+        long start = System.nanoTime();
+        List<String> setNums = streamPage(consumerDelayMs);
+        long totalNanos = System.nanoTime() - start;
+        WireFormat.Stats after = WireFormat.getStats();
+
+        int chunks = (PAGE_SIZE + 99) / 100;
+        long consumerNanos = chunks * consumerDelayMs * 1_000_000L;
+        long parseNanos = after.jsonParseNanos - before.jsonParseNanos;
+        System.out.println(String.format(Locale.US, "stream: total %.1f ms, decode %.1f ms, consumer ~%d ms",
+                totalNanos / 1e6, parseNanos / 1e6, consumerNanos / 1_000_000));
+
+        assertEquals(PAGE_SIZE, setNums.size());
+        assertTrue(totalNanos >= consumerNanos);
+        assertTrue("decode " + parseNanos + " ns includes consumer time", parseNanos < consumerNanos);
+    }
+
+    private List<LegoSet> fetchPage() throws IOException {
+        Response<LegoSetResponse> response = api.getLegoSets(1, PAGE_SIZE, null, null, null).execute();
+        assertTrue(response.isSuccessful());
+        return response.body().getResults();
+    }
+
+    private List<String> streamPage(long consumerDelayMs) throws IOException {
+        List<String> setNums = new ArrayList<>();
+        Response<ResponseBody> response = api.streamLegoSets(1, PAGE_SIZE, null, null, null).execute();
+        assertTrue(response.isSuccessful());
+        LegoSetStreamReader.read(response.body(), 100, chunk -> {
+            for (LegoSetEntity entity : chunk) {
+                setNums.add(entity.getSetNum());
+            }
+            if (consumerDelayMs > 0) {
+                try {
+                    Thread.sleep(consumerDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+        });
+        return setNums;
+    }
+
+    private void enqueueChunked(byte[] body, String contentType) {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", contentType)
+                .setChunkedBody(new Buffer().write(body), 4096));
+    }
+
+    private void enqueueGzip(byte[] body, String contentType) throws IOException {
+        Buffer gzipped = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(gzipped))) {
+            sink.write(body);
+        }
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", contentType)
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(gzipped));
+    }
+
+    private static void assertSamePage(List<LegoSet> expected, List<LegoSet> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            LegoSet a = expected.get(i);
+            LegoSet b = actual.get(i);
+            assertEquals(a.getSetNum(), b.getSetNum());
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getNumParts(), b.getNumParts());
+            assertEquals(a.getSetImgUrl(), b.getSetImgUrl());
+            assertEquals(a.getPrice(), b.getPrice(), 0.0);
+        }
+    }
+
+    private static Map<String, Object> buildPage(int size) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> set = new LinkedHashMap<>();
+            set.put("set_num", (10000 + i) + "-1");
+            set.put("name", "Set number " + i);
+            set.put("year", 1990 + i % 35);
+            set.put("theme", i % 2 == 0 ? "City" : "Technic");
+            set.put("num_parts", 100 + i * 7);
+            set.put("set_img_url", "https://cdn.rebrickable.com/media/sets/" + (10000 + i) + "-1.jpg");
+            set.put("price", 9.99 + i);
+            set.put("rating", 3.0 + (i % 20) / 10.0);
+            set.put("age_range", "8+");
+            set.put("is_exclusive", i % 7 == 0);
+            set.put("in_stock", i % 3 != 0);
+            set.put("is_favorite", false);
+            set.put("description", "Description of set " + i);
+            results.add(set);
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("count", size);
+        page.put("next", null);
+        page.put("results", results);
+        return page;
+    }
+}
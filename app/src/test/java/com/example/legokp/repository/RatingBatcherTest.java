@@ -0,0 +1,247 @@
+package com.example.legokp.repository;
+
+import com.example.legokp.models.SetRating;
+import com.example.legokp.network.LegoApiService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RatingBatcher против MockWebServer: debounce, максимальное ожидание, деление по 50 наборов и TTL.
+ * Сервер отвечает на каждый набор рейтингом, зависящим от номера, поэтому записанные значения можно сверить.
+ */
+public class RatingBatcherTest {
+
+    private MockWebServer server;
+    private InMemoryRatingStore store;
+    // Сдвиг часов батчера относительно реального времени: TTL проверяется без ожидания 10 минут
+    private final AtomicLong clockOffset = new AtomicLong();
+    private RatingBatcher batcher;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return ratingsFor(request.getRequestUrl());
+            }
+        });
+        server.start();
+        LegoApiService api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(LegoApiService.class);
+        store = new InMemoryRatingStore();
+        batcher = new RatingBatcher(store, api, () -> System.currentTimeMillis() + clockOffset.get());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void burstIsDebouncedIntoOneRequest() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            // Повторы одних и тех же наборов, как при onScrolled
+            batcher.request(Arrays.asList("set-" + i, "set-" + (i + 1)));
+            Thread.sleep(10);
+        }
+
+        // Пока не прошло DEBOUNCE_MS после последнего вызова, в сеть ничего не уходит
+        assertNull(server.takeRequest(RatingBatcher.DEBOUNCE_MS / 2, TimeUnit.MILLISECONDS));
+        RecordedRequest request = server.takeRequest(2, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals(11, setNums(request).size());
+        assertNull(server.takeRequest(RatingBatcher.DEBOUNCE_MS * 2, TimeUnit.MILLISECONDS));
+        assertEquals(1, server.getRequestCount());
+
+        waitForStored(11);
+        InMemoryRatingStore.Row row = store.rows.get("set-7");
+        assertEquals(countFor("set-7"), row.remoteReviewCount);
+        assertEquals(averageFor("set-7"), row.remoteAverageRating, 0.001);
+        assertTrue(row.remoteFetchedAt > 0);
+    }
+
+    @Test
+    public void continuousScrollingFlushesAfterMaxWait() throws Exception {
+        long start = System.nanoTime();
+        Thread scroller = new Thread(() -> {
+            // Вызовы чаще DEBOUNCE_MS в течение 2,5 с: debounce сам по себе не сработал бы
+            for (int i = 0; i < 25; i++) {
+                batcher.request(Collections.singletonList("set-" + i));
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        scroller.start();
+
+        RecordedRequest first = server.takeRequest(2, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        scroller.join();
+
+        assertNotNull("Batch must leave before scrolling stops", first);
+        assertTrue("First batch after " + elapsedMs + " ms",
+                elapsedMs < RatingBatcher.MAX_WAIT_MS + RatingBatcher.DEBOUNCE_MS + 300);
+        assertTrue(setNums(first).size() >= RatingBatcher.MAX_WAIT_MS / 100);
+    }
+
+    @Test
+    public void largeBatchIsSplitIntoRequestsOfFifty() throws Exception {
+        List<String> visible = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            visible.add("set-" + i);
+        }
+
+        batcher.request(visible);
+
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RecordedRequest request = server.takeRequest(2, TimeUnit.SECONDS);
+            assertNotNull(request);
+            sizes.add(setNums(request).size());
+        }
+        assertEquals(Arrays.asList(RatingBatcher.MAX_SETS_PER_REQUEST, RatingBatcher.MAX_SETS_PER_REQUEST, 20), sizes);
+        assertNull(server.takeRequest(RatingBatcher.DEBOUNCE_MS * 2, TimeUnit.MILLISECONDS));
+
+        waitForStored(120);
+        assertEquals(countFor("set-119"), store.rows.get("set-119").remoteReviewCount);
+    }
+
+    @Test
+    public void freshRatingsAreNotRequestedAgainUntilTtlExpires() throws Exception {
+        List<String> visible = Arrays.asList("set-1", "set-2");
+        batcher.request(visible);
+        assertNotNull(server.takeRequest(2, TimeUnit.SECONDS));
+        waitForStored(2);
+
+        // Повторная прокрутка к тем же наборам в пределах TTL: рейтинги свежие
+        batcher.request(visible);
+        assertNull(server.takeRequest(RatingBatcher.DEBOUNCE_MS * 3, TimeUnit.MILLISECONDS));
+
+        // Свежий только один из наборов: запрашивается только второй
+        clockOffset.set(RatingBatcher.RATING_TTL / 2);
+        batcher.request(Arrays.asList("set-2", "set-3"));
+        RecordedRequest partial = server.takeRequest(2, TimeUnit.SECONDS);
+        assertNotNull(partial);
+        assertEquals(Collections.singletonList("set-3"), setNums(partial));
+
+        long before = store.rows.get("set-1").remoteFetchedAt;
+        clockOffset.set(RatingBatcher.RATING_TTL + 1_000);
+        batcher.request(visible);
+        RecordedRequest expired = server.takeRequest(2, TimeUnit.SECONDS);
+        assertNotNull(expired);
+        assertEquals(visible, setNums(expired));
+        assertEquals(3, server.getRequestCount());
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (store.rows.get("set-1").remoteFetchedAt == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(store.rows.get("set-1").remoteFetchedAt > before);
+    }
+
+    private void waitForStored(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (store.rows.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(count, store.rows.size());
+    }
+
+    private static List<String> setNums(RecordedRequest request) {
+        String value = request.getRequestUrl().queryParameter("set_nums");
+        return Arrays.asList(value.split(","));
+    }
+
+    private static MockResponse ratingsFor(HttpUrl url) {
+        String value = url.queryParameter("set_nums");
+        if (value == null) {
+            return new MockResponse().setResponseCode(404);
+        }
+        StringBuilder ratings = new StringBuilder();
+        for (String setNum : value.split(",")) {
+            if (ratings.length() > 0) ratings.append(',');
+            ratings.append("{\"set_num\":\"").append(setNum)
+                    .append("\",\"count\":").append(countFor(setNum))
+                    .append(",\"average_rating\":").append(averageFor(setNum)).append('}');
+        }
+        return new MockResponse().setBody("{\"success\":true,\"ratings\":[" + ratings + "]}");
+    }
+
+    private static int countFor(String setNum) {
+        return setNum.length() + Integer.parseInt(setNum.substring(setNum.indexOf('-') + 1));
+    }
+
+    private static float averageFor(String setNum) {
+        return 1f + (countFor(setNum) % 40) / 10f;
+    }
+
+    /**
+     * review_aggregates.remote_* в памяти
+     */
+    private static class InMemoryRatingStore implements RatingBatcher.RatingStore {
+
+        static class Row {
+            final int remoteReviewCount;
+            final double remoteAverageRating;
+            final long remoteFetchedAt;
+
+            Row(int remoteReviewCount, double remoteAverageRating, long remoteFetchedAt) {
+                this.remoteReviewCount = remoteReviewCount;
+                this.remoteAverageRating = remoteAverageRating;
+                this.remoteFetchedAt = remoteFetchedAt;
+            }
+        }
+
+        final Map<String, Row> rows = new ConcurrentHashMap<>();
+
+        @Override
+        public List<String> getSetsWithFreshRemoteRating(List<String> setNums, long since) {
+            List<String> fresh = new ArrayList<>();
+            for (String setNum : setNums) {
+                Row row = rows.get(setNum);
+                if (row != null && row.remoteFetchedAt >= since) fresh.add(setNum);
+            }
+            return fresh;
+        }
+
+        @Override
+        public void saveRemoteRatings(List<SetRating> ratings, long fetchedAt) {
+            for (SetRating rating : ratings) {
+                if (rating.getSetNum() == null) continue;
+                rows.put(rating.getSetNum(),
+                        new Row(rating.getCount(), rating.getAverageRating(), fetchedAt));
+            }
+        }
+    }
+}
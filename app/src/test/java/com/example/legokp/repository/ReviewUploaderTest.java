@@ -0,0 +1,162 @@
+package com.example.legokp.repository;
+
+import com.example.legokp.models.Review;
+import com.example.legokp.network.LegoApiService;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ReviewUploader против MockWebServer: пачка одним запросом, результаты по отзывам,
+ * повторы после сбоя и отправка по одному, если api/reviews/batch на сервере нет
+ */
+public class ReviewUploaderTest {
+
+    private static final int BATCH_SIZE = 50;
+
+    private MockWebServer server;
+    private ReviewUploader uploader;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        LegoApiService api = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(LegoApiService.class);
+        uploader = new ReviewUploader(api, 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void batchIsOneRequestWithPerReviewResults() throws Exception {
+        List<Review> reviews = reviews(BATCH_SIZE);
+        StringBuilder results = new StringBuilder();
+        // Последний отзыв отклонен, предпоследний в ответе отсутствует
+        for (int i = 0; i < BATCH_SIZE - 1; i++) {
+            if (i > 0) results.append(',');
+            boolean success = i < BATCH_SIZE - 2;
+            String clientId = i < BATCH_SIZE - 2 ? "c" + i : "c" + (BATCH_SIZE - 1);
+            results.append("{\"client_id\":\"").append(clientId).append("\",\"success\":").append(success).append('}');
+        }
+        server.enqueue(new MockResponse().setBody("{\"success\":true,\"results\":[" + results + "]}"));
+
+        Set<String> accepted = uploader.upload(reviews);
+
+        assertEquals(BATCH_SIZE - 2, accepted.size());
+        assertTrue(accepted.contains("c0"));
+        assertEquals(1, server.getRequestCount());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/api/reviews/batch", request.getPath());
+        assertEquals(BATCH_SIZE, sentReviews(request).size());
+    }
+
+    @Test
+    public void batchIsRetriedWithSameClientIdsAfterFailure() throws Exception {
+        List<Review> reviews = reviews(3);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+        Set<String> accepted = uploader.upload(reviews);
+
+        assertEquals(new HashSet<>(Arrays.asList("c0", "c1", "c2")), accepted);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(clientIds(sentReviews(server.takeRequest())), clientIds(sentReviews(server.takeRequest())));
+    }
+
+    @Test
+    public void exhaustedRetriesAcceptNothing() throws Exception {
+        for (int i = 0; i < ReviewUploader.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        assertTrue(uploader.upload(reviews(2)).isEmpty());
+        assertEquals(ReviewUploader.MAX_ATTEMPTS, server.getRequestCount());
+    }
+
+    @Test
+    public void missingBatchEndpointFallsBackToSingleReviews() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+        server.enqueue(new MockResponse().setResponseCode(400));
+
+        Set<String> accepted = uploader.upload(reviews(3));
+
+        assertEquals(new HashSet<>(Arrays.asList("c0", "c1")), accepted);
+        assertEquals("/api/reviews/batch", server.takeRequest().getPath());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("/api/reviews", server.takeRequest().getPath());
+        }
+
+        // Следующая пачка сразу идет по одному отзыву
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+        assertEquals(2, uploader.upload(reviews(2)).size());
+        assertEquals("/api/reviews", server.takeRequest().getPath());
+        assertEquals("/api/reviews", server.takeRequest().getPath());
+        assertEquals(7, server.getRequestCount());
+    }
+
+    @Test
+    public void methodNotAllowedAlsoFallsBack() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(405));
+        server.enqueue(new MockResponse().setBody("{\"success\":true}"));
+
+        assertEquals(1, uploader.upload(reviews(1)).size());
+        assertEquals("/api/reviews/batch", server.takeRequest().getPath());
+        assertEquals("c0", new JsonParser().parse(server.takeRequest().getBody().readUtf8())
+                .getAsJsonObject().get("client_id").getAsString());
+    }
+
+    private static List<Review> reviews(int count) {
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Review review = new Review("75192", "user" + i, "User " + i, 4f, "Comment " + i);
+            review.setClientId("c" + i);
+            reviews.add(review);
+        }
+        return reviews;
+    }
+
+    private static JsonArray sentReviews(RecordedRequest request) {
+        JsonObject body = new JsonParser().parse(request.getBody().readUtf8()).getAsJsonObject();
+        return body.getAsJsonArray("reviews");
+    }
+
+    private static List<String> clientIds(JsonArray reviews) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < reviews.size(); i++) {
+            ids.add(reviews.get(i).getAsJsonObject().get("client_id").getAsString());
+        }
+        return ids;
+    }
+}